@@ -0,0 +1,22 @@
+package org.aion.unity.indexer;
+
+/**
+ * The serialized state of a PoolIndexer after all the blocks up to and including blockNumber.
+ */
+public final class Checkpoint {
+    private final long blockNumber;
+    private final byte[] state;
+
+    public Checkpoint(long blockNumber, byte[] state) {
+        this.blockNumber = blockNumber;
+        this.state = state;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public byte[] getState() {
+        return state;
+    }
+}
@@ -0,0 +1,47 @@
+package org.aion.unity.indexer;
+
+import avm.Address;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A log emitted by a contract, as it appears in a transaction receipt.
+ * Topics are 32 bytes long, shorter values are right-padded with zeros by the AVM.
+ */
+public final class EventLog {
+    private final Address address;
+    private final List<byte[]> topics;
+    private final byte[] data;
+
+    public EventLog(byte[] address, List<byte[]> topics, byte[] data) {
+        this.address = new Address(address);
+        this.topics = Collections.unmodifiableList(new ArrayList<>(topics));
+        this.data = data == null ? new byte[0] : data;
+    }
+
+    public Address getAddress() {
+        return address;
+    }
+
+    public List<byte[]> getTopics() {
+        return topics;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return the event name, which is the first topic without the padding
+     */
+    public String getName() {
+        byte[] topic = topics.get(0);
+        int length = topic.length;
+        while (length > 0 && topic[length - 1] == 0) {
+            length--;
+        }
+        return new String(topic, 0, length);
+    }
+}
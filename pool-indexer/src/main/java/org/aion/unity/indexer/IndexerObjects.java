@@ -0,0 +1,390 @@
+package org.aion.unity.indexer;
+
+import avm.Address;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+
+/**
+ * State derived from the PoolRegistry and StakerRegistry events. Each object can be written to and read from a checkpoint.
+ */
+public class IndexerObjects {
+
+    public static class Staker {
+        Address identityAddress;
+        Address managementAddress;
+        Address signingAddress;
+        Address coinbaseAddress;
+        // bonded stake, excluding pending unbonds and transfers
+        BigInteger stake = BigInteger.ZERO;
+        boolean isActive = true;
+
+        Staker(Address identityAddress, Address managementAddress, Address signingAddress, Address coinbaseAddress) {
+            this.identityAddress = identityAddress;
+            this.managementAddress = managementAddress;
+            this.signingAddress = signingAddress;
+            this.coinbaseAddress = coinbaseAddress;
+        }
+
+        public Address getIdentityAddress() {
+            return identityAddress;
+        }
+
+        public Address getManagementAddress() {
+            return managementAddress;
+        }
+
+        public Address getSigningAddress() {
+            return signingAddress;
+        }
+
+        public Address getCoinbaseAddress() {
+            return coinbaseAddress;
+        }
+
+        public BigInteger getStake() {
+            return stake;
+        }
+
+        public boolean isActive() {
+            return isActive;
+        }
+
+        void serialize(DataOutputStream out) throws IOException {
+            putAddress(out, identityAddress);
+            putAddress(out, managementAddress);
+            putAddress(out, signingAddress);
+            putAddress(out, coinbaseAddress);
+            putBigInteger(out, stake);
+            out.writeBoolean(isActive);
+        }
+
+        static Staker from(DataInputStream in) throws IOException {
+            Staker staker = new Staker(getAddress(in), getAddress(in), getAddress(in), getAddress(in));
+            staker.stake = getBigInteger(in);
+            staker.isActive = in.readBoolean();
+            return staker;
+        }
+    }
+
+    public static class Pool {
+        Address identityAddress;
+        int commissionRate;
+        byte[] metaDataContentHash;
+        byte[] metaDataUrl;
+        // sum of the delegations, including the operator's self stake
+        BigInteger totalStake = BigInteger.ZERO;
+        // stake that is transferred to the pool but not finalized yet
+        BigInteger pendingStake = BigInteger.ZERO;
+        long registrationBlockNumber;
+
+        Pool(Address identityAddress, int commissionRate, byte[] metaDataContentHash, byte[] metaDataUrl, long registrationBlockNumber) {
+            this.identityAddress = identityAddress;
+            this.commissionRate = commissionRate;
+            this.metaDataContentHash = metaDataContentHash;
+            this.metaDataUrl = metaDataUrl;
+            this.registrationBlockNumber = registrationBlockNumber;
+        }
+
+        public Address getIdentityAddress() {
+            return identityAddress;
+        }
+
+        public int getCommissionRate() {
+            return commissionRate;
+        }
+
+        public byte[] getMetaDataContentHash() {
+            return metaDataContentHash;
+        }
+
+        public byte[] getMetaDataUrl() {
+            return metaDataUrl;
+        }
+
+        public BigInteger getTotalStake() {
+            return totalStake;
+        }
+
+        public BigInteger getPendingStake() {
+            return pendingStake;
+        }
+
+        public long getRegistrationBlockNumber() {
+            return registrationBlockNumber;
+        }
+
+        void serialize(DataOutputStream out) throws IOException {
+            putAddress(out, identityAddress);
+            out.writeInt(commissionRate);
+            putBytes(out, metaDataContentHash);
+            putBytes(out, metaDataUrl);
+            putBigInteger(out, totalStake);
+            putBigInteger(out, pendingStake);
+            out.writeLong(registrationBlockNumber);
+        }
+
+        static Pool from(DataInputStream in) throws IOException {
+            Pool pool = new Pool(getAddress(in), in.readInt(), getBytes(in), getBytes(in), 0);
+            pool.totalStake = getBigInteger(in);
+            pool.pendingStake = getBigInteger(in);
+            pool.registrationBlockNumber = in.readLong();
+            return pool;
+        }
+    }
+
+    public static class Delegation {
+        Address pool;
+        Address delegator;
+        BigInteger stake = BigInteger.ZERO;
+        // sum of the rewards withdrawn from the pool. Redelegated rewards are added to the stake instead
+        BigInteger withdrawnRewards = BigInteger.ZERO;
+        // -1 indicates auto-redelegation is not enabled
+        int autoDelegationFee = -1;
+
+        Delegation(Address pool, Address delegator) {
+            this.pool = pool;
+            this.delegator = delegator;
+        }
+
+        public Address getPool() {
+            return pool;
+        }
+
+        public Address getDelegator() {
+            return delegator;
+        }
+
+        public BigInteger getStake() {
+            return stake;
+        }
+
+        public BigInteger getWithdrawnRewards() {
+            return withdrawnRewards;
+        }
+
+        public int getAutoDelegationFee() {
+            return autoDelegationFee;
+        }
+
+        void serialize(DataOutputStream out) throws IOException {
+            putAddress(out, pool);
+            putAddress(out, delegator);
+            putBigInteger(out, stake);
+            putBigInteger(out, withdrawnRewards);
+            out.writeInt(autoDelegationFee);
+        }
+
+        static Delegation from(DataInputStream in) throws IOException {
+            Delegation delegation = new Delegation(getAddress(in), getAddress(in));
+            delegation.stake = getBigInteger(in);
+            delegation.withdrawnRewards = getBigInteger(in);
+            delegation.autoDelegationFee = in.readInt();
+            return delegation;
+        }
+    }
+
+    /**
+     * An unbond in the StakerRegistry. For undelegations from a pool, the staker is the pool and the recipient is the delegator.
+     */
+    public static class PendingUnbond {
+        long id;
+        Address staker;
+        Address recipient;
+        BigInteger amount;
+        BigInteger fee;
+        long blockNumber;
+
+        PendingUnbond(long id, Address staker, Address recipient, BigInteger amount, BigInteger fee, long blockNumber) {
+            this.id = id;
+            this.staker = staker;
+            this.recipient = recipient;
+            this.amount = amount;
+            this.fee = fee;
+            this.blockNumber = blockNumber;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Address getStaker() {
+            return staker;
+        }
+
+        public Address getRecipient() {
+            return recipient;
+        }
+
+        public BigInteger getAmount() {
+            return amount;
+        }
+
+        public BigInteger getFee() {
+            return fee;
+        }
+
+        public long getBlockNumber() {
+            return blockNumber;
+        }
+
+        void serialize(DataOutputStream out) throws IOException {
+            out.writeLong(id);
+            putAddress(out, staker);
+            putAddress(out, recipient);
+            putBigInteger(out, amount);
+            putBigInteger(out, fee);
+            out.writeLong(blockNumber);
+        }
+
+        static PendingUnbond from(DataInputStream in) throws IOException {
+            return new PendingUnbond(in.readLong(), getAddress(in), getAddress(in), getBigInteger(in), getBigInteger(in), in.readLong());
+        }
+    }
+
+    /**
+     * A stake transfer in the StakerRegistry. For delegation transfers between pools, the initiator is the delegator,
+     * otherwise it is null.
+     */
+    public static class PendingTransfer {
+        long id;
+        Address fromStaker;
+        Address toStaker;
+        Address initiator;
+        BigInteger amount;
+        BigInteger fee;
+        long blockNumber;
+
+        PendingTransfer(long id, Address fromStaker, Address toStaker, BigInteger amount, BigInteger fee, long blockNumber) {
+            this.id = id;
+            this.fromStaker = fromStaker;
+            this.toStaker = toStaker;
+            this.amount = amount;
+            this.fee = fee;
+            this.blockNumber = blockNumber;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Address getFromStaker() {
+            return fromStaker;
+        }
+
+        public Address getToStaker() {
+            return toStaker;
+        }
+
+        public Address getInitiator() {
+            return initiator;
+        }
+
+        public BigInteger getAmount() {
+            return amount;
+        }
+
+        public BigInteger getFee() {
+            return fee;
+        }
+
+        public long getBlockNumber() {
+            return blockNumber;
+        }
+
+        void serialize(DataOutputStream out) throws IOException {
+            out.writeLong(id);
+            putAddress(out, fromStaker);
+            putAddress(out, toStaker);
+            out.writeBoolean(initiator != null);
+            if (initiator != null) {
+                putAddress(out, initiator);
+            }
+            putBigInteger(out, amount);
+            putBigInteger(out, fee);
+            out.writeLong(blockNumber);
+        }
+
+        static PendingTransfer from(DataInputStream in) throws IOException {
+            long id = in.readLong();
+            Address fromStaker = getAddress(in);
+            Address toStaker = getAddress(in);
+            Address initiator = in.readBoolean() ? getAddress(in) : null;
+            PendingTransfer transfer = new PendingTransfer(id, fromStaker, toStaker, getBigInteger(in), getBigInteger(in), in.readLong());
+            transfer.initiator = initiator;
+            return transfer;
+        }
+    }
+
+    public static class PendingCommissionRateChange {
+        long id;
+        Address pool;
+        int newCommissionRate;
+        long blockNumber;
+
+        PendingCommissionRateChange(long id, Address pool, int newCommissionRate, long blockNumber) {
+            this.id = id;
+            this.pool = pool;
+            this.newCommissionRate = newCommissionRate;
+            this.blockNumber = blockNumber;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Address getPool() {
+            return pool;
+        }
+
+        public int getNewCommissionRate() {
+            return newCommissionRate;
+        }
+
+        public long getBlockNumber() {
+            return blockNumber;
+        }
+
+        void serialize(DataOutputStream out) throws IOException {
+            out.writeLong(id);
+            putAddress(out, pool);
+            out.writeInt(newCommissionRate);
+            out.writeLong(blockNumber);
+        }
+
+        static PendingCommissionRateChange from(DataInputStream in) throws IOException {
+            return new PendingCommissionRateChange(in.readLong(), getAddress(in), in.readInt(), in.readLong());
+        }
+    }
+
+    private static void putAddress(DataOutputStream out, Address address) throws IOException {
+        out.write(address.toByteArray());
+    }
+
+    private static Address getAddress(DataInputStream in) throws IOException {
+        byte[] address = new byte[Address.LENGTH];
+        in.readFully(address);
+        return new Address(address);
+    }
+
+    private static void putBigInteger(DataOutputStream out, BigInteger value) throws IOException {
+        putBytes(out, value.toByteArray());
+    }
+
+    private static BigInteger getBigInteger(DataInputStream in) throws IOException {
+        return new BigInteger(getBytes(in));
+    }
+
+    private static void putBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] getBytes(DataInputStream in) throws IOException {
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return value;
+    }
+}
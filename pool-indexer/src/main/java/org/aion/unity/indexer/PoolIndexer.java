@@ -0,0 +1,435 @@
+package org.aion.unity.indexer;
+
+import avm.Address;
+import org.aion.avm.userlib.abi.ABIDecoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the pool, delegator and pending operation state from the events of a PoolRegistry and its StakerRegistry,
+ * so that read requests can be served without calling the contracts.
+ * Blocks are processed in order. A checkpoint of the state is taken every checkpointInterval blocks,
+ * which can be persisted and used to restart the indexer, or to roll back the state on a chain reorganization.
+ * Block rewards are not part of the events, thus unsettled rewards should still be queried from the PoolRegistry.
+ */
+public class PoolIndexer {
+
+    private static final int CHECKPOINT_VERSION = 1;
+
+    private final Address poolRegistry;
+    private final Address stakerRegistry;
+    private final long checkpointInterval;
+
+    private long lastBlockNumber = -1;
+    private Checkpoint latestCheckpoint;
+
+    private Map<Address, IndexerObjects.Staker> stakers = new LinkedHashMap<>();
+    private Map<Address, IndexerObjects.Pool> pools = new LinkedHashMap<>();
+    // pool -> delegator -> delegation
+    private Map<Address, Map<Address, IndexerObjects.Delegation>> delegations = new LinkedHashMap<>();
+    private Map<Long, IndexerObjects.PendingUnbond> pendingUnbonds = new LinkedHashMap<>();
+    private Map<Long, IndexerObjects.PendingTransfer> pendingTransfers = new LinkedHashMap<>();
+    private Map<Long, IndexerObjects.PendingCommissionRateChange> pendingCommissionRateChanges = new LinkedHashMap<>();
+
+    /**
+     * @param poolRegistry       address of the PoolRegistry contract
+     * @param stakerRegistry     address of the StakerRegistry contract used by the PoolRegistry
+     * @param checkpointInterval number of blocks between two checkpoints
+     */
+    public PoolIndexer(Address poolRegistry, Address stakerRegistry, long checkpointInterval) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("checkpoint interval should be positive");
+        }
+        this.poolRegistry = poolRegistry;
+        this.stakerRegistry = stakerRegistry;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Creates an indexer which continues from a checkpoint.
+     */
+    public static PoolIndexer fromCheckpoint(Address poolRegistry, Address stakerRegistry, long checkpointInterval, Checkpoint checkpoint) {
+        PoolIndexer indexer = new PoolIndexer(poolRegistry, stakerRegistry, checkpointInterval);
+        indexer.restore(checkpoint);
+        return indexer;
+    }
+
+    /**
+     * Applies the logs of a transaction. The logs of other contracts are ignored.
+     * Transactions of the same block can be processed in separate calls, but blocks must be processed in order.
+     *
+     * @param blockNumber      the number of the block which includes the transaction
+     * @param transactionValue the value of the transaction. Registration does not emit the initial stake, which is the transaction value
+     * @param logs             the logs of the transaction, in the order they were emitted
+     */
+    public void process(long blockNumber, BigInteger transactionValue, List<EventLog> logs) {
+        if (blockNumber < lastBlockNumber) {
+            throw new IllegalArgumentException("block " + blockNumber + " is already processed");
+        }
+        // the previous block is complete once a later block is processed
+        if (blockNumber > lastBlockNumber && lastBlockNumber >= 0 &&
+                (latestCheckpoint == null || lastBlockNumber - latestCheckpoint.getBlockNumber() >= checkpointInterval)) {
+            latestCheckpoint = checkpoint();
+        }
+        lastBlockNumber = blockNumber;
+
+        for (EventLog log : logs) {
+            if (log.getAddress().equals(stakerRegistry)) {
+                processStakerRegistryEvent(blockNumber, transactionValue, log);
+            } else if (log.getAddress().equals(poolRegistry)) {
+                processPoolRegistryEvent(blockNumber, log);
+            }
+        }
+    }
+
+    /**
+     * @return the state after all the blocks up to and including the last processed block
+     */
+    public Checkpoint checkpoint() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeInt(stakers.size());
+            for (IndexerObjects.Staker staker : stakers.values()) {
+                staker.serialize(out);
+            }
+            out.writeInt(pools.size());
+            for (IndexerObjects.Pool pool : pools.values()) {
+                pool.serialize(out);
+            }
+            List<IndexerObjects.Delegation> allDelegations = new ArrayList<>();
+            for (Map<Address, IndexerObjects.Delegation> poolDelegations : delegations.values()) {
+                allDelegations.addAll(poolDelegations.values());
+            }
+            out.writeInt(allDelegations.size());
+            for (IndexerObjects.Delegation delegation : allDelegations) {
+                delegation.serialize(out);
+            }
+            out.writeInt(pendingUnbonds.size());
+            for (IndexerObjects.PendingUnbond unbond : pendingUnbonds.values()) {
+                unbond.serialize(out);
+            }
+            out.writeInt(pendingTransfers.size());
+            for (IndexerObjects.PendingTransfer transfer : pendingTransfers.values()) {
+                transfer.serialize(out);
+            }
+            out.writeInt(pendingCommissionRateChanges.size());
+            for (IndexerObjects.PendingCommissionRateChange change : pendingCommissionRateChanges.values()) {
+                change.serialize(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Checkpoint(lastBlockNumber, bytes.toByteArray());
+    }
+
+    /**
+     * Replaces the state with the state of the checkpoint. Blocks after the checkpoint should be processed again.
+     */
+    public void restore(Checkpoint checkpoint) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint.getState()))) {
+            if (in.readInt() != CHECKPOINT_VERSION) {
+                throw new IllegalArgumentException("unsupported checkpoint version");
+            }
+            Map<Address, IndexerObjects.Staker> stakers = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                IndexerObjects.Staker staker = IndexerObjects.Staker.from(in);
+                stakers.put(staker.identityAddress, staker);
+            }
+            Map<Address, IndexerObjects.Pool> pools = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                IndexerObjects.Pool pool = IndexerObjects.Pool.from(in);
+                pools.put(pool.identityAddress, pool);
+            }
+            Map<Address, Map<Address, IndexerObjects.Delegation>> delegations = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                IndexerObjects.Delegation delegation = IndexerObjects.Delegation.from(in);
+                delegations.computeIfAbsent(delegation.pool, k -> new LinkedHashMap<>()).put(delegation.delegator, delegation);
+            }
+            Map<Long, IndexerObjects.PendingUnbond> pendingUnbonds = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                IndexerObjects.PendingUnbond unbond = IndexerObjects.PendingUnbond.from(in);
+                pendingUnbonds.put(unbond.id, unbond);
+            }
+            Map<Long, IndexerObjects.PendingTransfer> pendingTransfers = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                IndexerObjects.PendingTransfer transfer = IndexerObjects.PendingTransfer.from(in);
+                pendingTransfers.put(transfer.id, transfer);
+            }
+            Map<Long, IndexerObjects.PendingCommissionRateChange> pendingCommissionRateChanges = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                IndexerObjects.PendingCommissionRateChange change = IndexerObjects.PendingCommissionRateChange.from(in);
+                pendingCommissionRateChanges.put(change.id, change);
+            }
+
+            this.stakers = stakers;
+            this.pools = pools;
+            this.delegations = delegations;
+            this.pendingUnbonds = pendingUnbonds;
+            this.pendingTransfers = pendingTransfers;
+            this.pendingCommissionRateChanges = pendingCommissionRateChanges;
+            this.lastBlockNumber = checkpoint.getBlockNumber();
+            this.latestCheckpoint = checkpoint;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("invalid checkpoint", e);
+        }
+    }
+
+    /**
+     * @return the latest periodic checkpoint, or null if no checkpoint has been taken yet
+     */
+    public Checkpoint getLatestCheckpoint() {
+        return latestCheckpoint;
+    }
+
+    public long getLastBlockNumber() {
+        return lastBlockNumber;
+    }
+
+    public IndexerObjects.Staker getStaker(Address identityAddress) {
+        return stakers.get(identityAddress);
+    }
+
+    public IndexerObjects.Pool getPool(Address pool) {
+        return pools.get(pool);
+    }
+
+    public Collection<IndexerObjects.Pool> getPools() {
+        return Collections.unmodifiableCollection(pools.values());
+    }
+
+    /**
+     * @return the delegation, or null if the delegator has never delegated to the pool
+     */
+    public IndexerObjects.Delegation getDelegation(Address pool, Address delegator) {
+        Map<Address, IndexerObjects.Delegation> poolDelegations = delegations.get(pool);
+        return poolDelegations == null ? null : poolDelegations.get(delegator);
+    }
+
+    /**
+     * @return the delegations of the pool with a positive stake
+     */
+    public List<IndexerObjects.Delegation> getDelegationsOfPool(Address pool) {
+        List<IndexerObjects.Delegation> result = new ArrayList<>();
+        Map<Address, IndexerObjects.Delegation> poolDelegations = delegations.get(pool);
+        if (poolDelegations != null) {
+            for (IndexerObjects.Delegation delegation : poolDelegations.values()) {
+                if (delegation.stake.signum() > 0) {
+                    result.add(delegation);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the delegations of the delegator with a positive stake
+     */
+    public List<IndexerObjects.Delegation> getDelegationsOfDelegator(Address delegator) {
+        List<IndexerObjects.Delegation> result = new ArrayList<>();
+        for (Map<Address, IndexerObjects.Delegation> poolDelegations : delegations.values()) {
+            IndexerObjects.Delegation delegation = poolDelegations.get(delegator);
+            if (delegation != null && delegation.stake.signum() > 0) {
+                result.add(delegation);
+            }
+        }
+        return result;
+    }
+
+    public List<IndexerObjects.PendingUnbond> getPendingUnbonds(Address recipient) {
+        List<IndexerObjects.PendingUnbond> result = new ArrayList<>();
+        for (IndexerObjects.PendingUnbond unbond : pendingUnbonds.values()) {
+            if (unbond.recipient.equals(recipient)) {
+                result.add(unbond);
+            }
+        }
+        return result;
+    }
+
+    public List<IndexerObjects.PendingTransfer> getPendingTransfers(Address initiator) {
+        List<IndexerObjects.PendingTransfer> result = new ArrayList<>();
+        for (IndexerObjects.PendingTransfer transfer : pendingTransfers.values()) {
+            if (initiator.equals(transfer.initiator)) {
+                result.add(transfer);
+            }
+        }
+        return result;
+    }
+
+    public IndexerObjects.PendingCommissionRateChange getPendingCommissionRateChange(long id) {
+        return pendingCommissionRateChanges.get(id);
+    }
+
+    private void processStakerRegistryEvent(long blockNumber, BigInteger transactionValue, EventLog log) {
+        List<byte[]> topics = log.getTopics();
+        switch (log.getName()) {
+            case "StakerRegistered": {
+                Address identityAddress = new Address(topics.get(1));
+                IndexerObjects.Staker staker = new IndexerObjects.Staker(identityAddress, new Address(log.getData()),
+                        new Address(topics.get(2)), new Address(topics.get(3)));
+                staker.stake = transactionValue;
+                stakers.put(identityAddress, staker);
+                break;
+            }
+            case "SigningAddressSet":
+                stakers.get(new Address(topics.get(1))).signingAddress = new Address(log.getData());
+                break;
+            case "CoinbaseAddressSet":
+                stakers.get(new Address(topics.get(1))).coinbaseAddress = new Address(log.getData());
+                break;
+            case "Bonded": {
+                IndexerObjects.Staker staker = stakers.get(new Address(topics.get(1)));
+                staker.stake = staker.stake.add(new BigInteger(log.getData()));
+                break;
+            }
+            case "Unbonded": {
+                ABIDecoder decoder = new ABIDecoder(log.getData());
+                IndexerObjects.PendingUnbond unbond = new IndexerObjects.PendingUnbond(getLong(topics.get(1)), new Address(topics.get(2)),
+                        new Address(topics.get(3)), decoder.decodeOneBigInteger(), decoder.decodeOneBigInteger(), blockNumber);
+                IndexerObjects.Staker staker = stakers.get(unbond.staker);
+                staker.stake = staker.stake.subtract(unbond.amount);
+                pendingUnbonds.put(unbond.id, unbond);
+                break;
+            }
+            case "StakeTransferred": {
+                ABIDecoder decoder = new ABIDecoder(log.getData());
+                IndexerObjects.PendingTransfer transfer = new IndexerObjects.PendingTransfer(getLong(topics.get(1)), new Address(topics.get(2)),
+                        new Address(topics.get(3)), decoder.decodeOneBigInteger(), decoder.decodeOneBigInteger(), blockNumber);
+                IndexerObjects.Staker staker = stakers.get(transfer.fromStaker);
+                staker.stake = staker.stake.subtract(transfer.amount);
+                pendingTransfers.put(transfer.id, transfer);
+                break;
+            }
+            case "UnbondFinalized":
+                pendingUnbonds.remove(getLong(log.getData()));
+                break;
+            case "TransferFinalized": {
+                IndexerObjects.PendingTransfer transfer = pendingTransfers.remove(getLong(log.getData()));
+                BigInteger remaining = transfer.amount.subtract(transfer.fee);
+                IndexerObjects.Staker staker = stakers.get(transfer.toStaker);
+                staker.stake = staker.stake.add(remaining);
+                // the PoolRegistry emits the delegation to the destination pool after the finalization
+                if (transfer.initiator != null) {
+                    IndexerObjects.Pool pool = pools.get(transfer.toStaker);
+                    pool.pendingStake = pool.pendingStake.subtract(remaining);
+                }
+                break;
+            }
+            case "StateChanged":
+                stakers.get(new Address(topics.get(1))).isActive = log.getData()[0] == 1;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void processPoolRegistryEvent(long blockNumber, EventLog log) {
+        List<byte[]> topics = log.getTopics();
+        switch (log.getName()) {
+            case "ADSPoolRegistered": {
+                Address identityAddress = new Address(topics.get(1));
+                IndexerObjects.Pool pool = new IndexerObjects.Pool(identityAddress, (int) getLong(topics.get(2)),
+                        topics.get(3), log.getData(), blockNumber);
+                // registration does not emit a delegation event, the self stake is the initial stake of the staker registered in the same transaction
+                BigInteger selfStake = stakers.get(identityAddress).stake;
+                getOrCreateDelegation(identityAddress, identityAddress).stake = selfStake;
+                pool.totalStake = selfStake;
+                pools.put(identityAddress, pool);
+                break;
+            }
+            case "ADSDelegated": {
+                Address pool = new Address(topics.get(2));
+                BigInteger value = new BigInteger(log.getData());
+                IndexerObjects.Delegation delegation = getOrCreateDelegation(pool, new Address(topics.get(1)));
+                delegation.stake = delegation.stake.add(value);
+                pools.get(pool).totalStake = pools.get(pool).totalStake.add(value);
+                break;
+            }
+            case "ADSUndelegated": {
+                Address pool = new Address(topics.get(3));
+                BigInteger amount = new ABIDecoder(log.getData()).decodeOneBigInteger();
+                IndexerObjects.Delegation delegation = getOrCreateDelegation(pool, new Address(topics.get(2)));
+                delegation.stake = delegation.stake.subtract(amount);
+                pools.get(pool).totalStake = pools.get(pool).totalStake.subtract(amount);
+                break;
+            }
+            case "ADSDelegationTransferred": {
+                Address initiator = new Address(topics.get(2));
+                Address fromPool = new Address(topics.get(3));
+                ABIDecoder decoder = new ABIDecoder(log.getData());
+                Address toPool = decoder.decodeOneAddress();
+                BigInteger amount = decoder.decodeOneBigInteger();
+                BigInteger fee = decoder.decodeOneBigInteger();
+
+                pendingTransfers.get(getLong(topics.get(1))).initiator = initiator;
+                IndexerObjects.Delegation delegation = getOrCreateDelegation(fromPool, initiator);
+                delegation.stake = delegation.stake.subtract(amount);
+                pools.get(fromPool).totalStake = pools.get(fromPool).totalStake.subtract(amount);
+                pools.get(toPool).pendingStake = pools.get(toPool).pendingStake.add(amount.subtract(fee));
+                break;
+            }
+            case "ADSWithdrew": {
+                IndexerObjects.Delegation delegation = getOrCreateDelegation(new Address(topics.get(2)), new Address(topics.get(1)));
+                delegation.withdrawnRewards = delegation.withdrawnRewards.add(new BigInteger(log.getData()));
+                break;
+            }
+            case "ADSWithdrewFromPools": {
+                Address delegator = new Address(topics.get(1));
+                ABIDecoder decoder = new ABIDecoder(log.getData());
+                Address[] withdrawnPools = decoder.decodeOneAddressArray();
+                BigInteger[] amounts = decoder.decodeOneBigIntegerArray();
+                for (int i = 0; i < withdrawnPools.length; i++) {
+                    IndexerObjects.Delegation delegation = getOrCreateDelegation(withdrawnPools[i], delegator);
+                    delegation.withdrawnRewards = delegation.withdrawnRewards.add(amounts[i]);
+                }
+                break;
+            }
+            case "ADSAutoRewardsDelegationEnabled":
+                getOrCreateDelegation(new Address(topics.get(2)), new Address(topics.get(1))).autoDelegationFee = new BigInteger(log.getData()).intValue();
+                break;
+            case "ADSAutoRewardsDelegationDisabled":
+                getOrCreateDelegation(new Address(log.getData()), new Address(topics.get(1))).autoDelegationFee = -1;
+                break;
+            case "ADSCommissionRateChangeRequested": {
+                long id = getLong(topics.get(1));
+                pendingCommissionRateChanges.put(id, new IndexerObjects.PendingCommissionRateChange(id, new Address(topics.get(2)),
+                        new BigInteger(log.getData()).intValue(), blockNumber));
+                break;
+            }
+            case "ADSCommissionRateChangeFinalized": {
+                IndexerObjects.PendingCommissionRateChange change = pendingCommissionRateChanges.remove(getLong(log.getData()));
+                pools.get(change.pool).commissionRate = change.newCommissionRate;
+                break;
+            }
+            case "ADSPoolMetaDataUpdated": {
+                IndexerObjects.Pool pool = pools.get(new Address(topics.get(1)));
+                pool.metaDataContentHash = topics.get(2);
+                pool.metaDataUrl = log.getData();
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private IndexerObjects.Delegation getOrCreateDelegation(Address pool, Address delegator) {
+        return delegations.computeIfAbsent(pool, k -> new LinkedHashMap<>())
+                .computeIfAbsent(delegator, k -> new IndexerObjects.Delegation(pool, delegator));
+    }
+
+    private static long getLong(byte[] value) {
+        return new BigInteger(value).longValue();
+    }
+}
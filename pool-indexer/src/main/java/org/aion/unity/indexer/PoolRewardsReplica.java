@@ -0,0 +1,209 @@
+package org.aion.unity.indexer;
+
+/**
+ * An off-chain replica of the PoolRegistry's PoolRewardsStateMachine, with the same rounding so that the results are identical to the contract.
+ * The state is kept in mutable UInt256 values and the intermediate results in scratch values owned by the replica, so a call does not allocate.
+ * Values are returned by writing them to a UInt256 provided by the caller. A replica is not thread-safe.
+ */
+public class PoolRewardsReplica {
+
+    private static final UInt256 PRECISION = new UInt256(1_000_000_000_000_000_000L).multiply(1_000_000_000L);
+    private static final UInt256 COMMISSION_RATE_DIVISOR = new UInt256(1000000);
+
+    public static class PoolRewards {
+        final UInt256 accumulatedStake = new UInt256();
+        final UInt256 accumulatedCommission = new UInt256();
+        final UInt256 outstandingRewards = new UInt256();
+        final UInt256 currentCRR = new UInt256();
+        final UInt256 accumulatedBlockRewards = new UInt256();
+        int commissionRate;
+
+        public PoolRewards(int commissionRate) {
+            this.commissionRate = commissionRate;
+        }
+
+        public UInt256 getAccumulatedStake() {
+            return accumulatedStake;
+        }
+
+        public UInt256 getAccumulatedCommission() {
+            return accumulatedCommission;
+        }
+
+        public UInt256 getOutstandingRewards() {
+            return outstandingRewards;
+        }
+
+        public int getCommissionRate() {
+            return commissionRate;
+        }
+
+        public PoolRewards copyFrom(PoolRewards other) {
+            accumulatedStake.set(other.accumulatedStake);
+            accumulatedCommission.set(other.accumulatedCommission);
+            outstandingRewards.set(other.outstandingRewards);
+            currentCRR.set(other.currentCRR);
+            accumulatedBlockRewards.set(other.accumulatedBlockRewards);
+            commissionRate = other.commissionRate;
+            return this;
+        }
+    }
+
+    public static class DelegatorInfo {
+        final UInt256 stake = new UInt256();
+        final UInt256 settledRewards = new UInt256();
+        final UInt256 startingCrr = new UInt256();
+        long startingCrrBlockNumber;
+
+        public UInt256 getStake() {
+            return stake;
+        }
+
+        public DelegatorInfo copyFrom(DelegatorInfo other) {
+            stake.set(other.stake);
+            settledRewards.set(other.settledRewards);
+            startingCrr.set(other.startingCrr);
+            startingCrrBlockNumber = other.startingCrrBlockNumber;
+            return this;
+        }
+    }
+
+    private final PoolRewards currentPoolRewards;
+
+    // scratch values, see the methods using them for what each one holds
+    private final UInt256 commission = new UInt256();
+    private final UInt256 currentRewards = new UInt256();
+    private final UInt256 unsettledRewards = new UInt256();
+    private final UInt256 prevBond = new UInt256();
+    private final UInt256 unbondedStake = new UInt256();
+
+    public PoolRewardsReplica(PoolRewards poolRewards) {
+        currentPoolRewards = poolRewards;
+    }
+
+    /* ----------------------------------------------------------------------
+     * Leave and Join Functions
+     * ----------------------------------------------------------------------*/
+
+    /**
+     * Writes the bonded stake that just "left" to stake.
+     */
+    private void leave(DelegatorInfo delegatorInfo, long blockNumber, UInt256 stake) {
+        incrementPeriod();
+        calculateUnsettledRewards(delegatorInfo, blockNumber, unsettledRewards);
+
+        delegatorInfo.settledRewards.add(unsettledRewards);
+
+        stake.set(delegatorInfo.stake);
+        // reset delegator Info
+        delegatorInfo.stake.setZero();
+        delegatorInfo.startingCrrBlockNumber = 0;
+        delegatorInfo.startingCrr.setZero();
+
+        currentPoolRewards.accumulatedStake.subtract(stake);
+    }
+
+    private void join(DelegatorInfo delegatorInfo, long blockNumber, UInt256 stake) {
+        delegatorInfo.stake.set(stake);
+        delegatorInfo.startingCrrBlockNumber = blockNumber;
+        delegatorInfo.startingCrr.set(currentPoolRewards.currentCRR);
+        currentPoolRewards.accumulatedStake.add(stake);
+    }
+
+    /* ----------------------------------------------------------------------
+     * "Internal" Functions used by Leave and Join
+     * ----------------------------------------------------------------------*/
+
+    private void incrementPeriod() {
+        // commission = commissionRate * accumulatedBlockRewards / 1000000
+        commission.set(currentPoolRewards.commissionRate).multiply(currentPoolRewards.accumulatedBlockRewards).divide(COMMISSION_RATE_DIVISOR);
+        currentRewards.set(currentPoolRewards.accumulatedBlockRewards).subtract(commission);
+
+        currentPoolRewards.accumulatedCommission.add(commission);
+        currentPoolRewards.outstandingRewards.add(currentPoolRewards.accumulatedBlockRewards);
+        currentPoolRewards.accumulatedBlockRewards.setZero();
+
+        if (!currentPoolRewards.accumulatedStake.isZero()) {
+            // crr = currentRewards * 10^27 / accumulatedStake, computed in place
+            currentRewards.multiply(PRECISION).divide(currentPoolRewards.accumulatedStake);
+            currentPoolRewards.currentCRR.add(currentRewards);
+        }
+    }
+
+    private void calculateUnsettledRewards(DelegatorInfo delegatorInfo, long blockNumber, UInt256 rewards) {
+        if (delegatorInfo.startingCrrBlockNumber == blockNumber) {
+            rewards.setZero();
+            return;
+        }
+        // (endingCRR - startingCRR) * stake / 10^27
+        rewards.set(currentPoolRewards.currentCRR).subtract(delegatorInfo.startingCrr).multiply(delegatorInfo.stake).divide(PRECISION);
+    }
+
+    /* ----------------------------------------------------------------------
+     * Contract Lifecycle Functions
+     * ----------------------------------------------------------------------*/
+    public void onUndelegate(DelegatorInfo delegatorInfo, long blockNumber, UInt256 stake) {
+        prevBond.set(delegatorInfo.stake);
+        leave(delegatorInfo, blockNumber, unbondedStake);
+
+        // if they didn't fully un-bond, re-bond the remaining amount
+        prevBond.subtract(stake);
+        if (!prevBond.isZero()) {
+            join(delegatorInfo, blockNumber, prevBond);
+        }
+    }
+
+    public void onDelegate(DelegatorInfo delegatorInfo, long blockNumber, UInt256 stake) {
+        if (!delegatorInfo.stake.isZero()) {
+            leave(delegatorInfo, blockNumber, prevBond);
+        } else {
+            prevBond.setZero();
+            incrementPeriod();
+        }
+
+        prevBond.add(stake);
+        join(delegatorInfo, blockNumber, prevBond);
+    }
+
+    /**
+     * Writes the withdrawn rewards of the delegator to rewards.
+     */
+    public UInt256 onWithdraw(DelegatorInfo delegatorInfo, long blockNumber, UInt256 rewards) {
+        if (!delegatorInfo.stake.isZero()) {
+            // do a "leave-and-join"
+            leave(delegatorInfo, blockNumber, unbondedStake);
+            join(delegatorInfo, blockNumber, unbondedStake);
+        }
+
+        rewards.set(delegatorInfo.settledRewards);
+        delegatorInfo.settledRewards.setZero();
+        currentPoolRewards.outstandingRewards.subtract(rewards);
+        return rewards;
+    }
+
+    /**
+     * Writes the withdrawn commission of the operator to commission.
+     */
+    public UInt256 onWithdrawOperator(UInt256 commission) {
+        commission.set(currentPoolRewards.accumulatedCommission);
+        currentPoolRewards.accumulatedCommission.setZero();
+        currentPoolRewards.outstandingRewards.subtract(commission);
+        return commission;
+    }
+
+    public void onBlock(long blockNumber, UInt256 blockReward) {
+        currentPoolRewards.accumulatedBlockRewards.add(blockReward);
+    }
+
+    /**
+     * Distributes the accumulated block rewards to the delegators, without any delegator leaving or joining.
+     */
+    public void onSweep() {
+        incrementPeriod();
+    }
+
+    public void setCommissionRate(int newRate) {
+        incrementPeriod();
+        currentPoolRewards.commissionRate = newRate;
+    }
+}
@@ -0,0 +1,333 @@
+package org.aion.unity.indexer;
+
+import java.math.BigInteger;
+
+/**
+ * A mutable unsigned 256-bit integer over four 64-bit limbs, used to replay the reward calculations without allocating a BigInteger per operation.
+ * The arithmetic methods update this value in place and return it. They throw an ArithmeticException if the result does not fit in 256 bits,
+ * is negative, or is a division by zero, which never happens for the values produced by the PoolRegistry.
+ */
+public final class UInt256 implements Comparable<UInt256> {
+
+    private static final long MASK_32 = 0xFFFFFFFFL;
+    private static final int DIGITS = 8;
+
+    // 32-bit digits of the dividend (with one extra digit for normalization), divisor and quotient
+    private static final ThreadLocal<int[][]> DIVISION_SCRATCH = ThreadLocal.withInitial(() -> new int[][]{new int[DIGITS + 1], new int[DIGITS], new int[DIGITS]});
+
+    // little-endian limbs
+    private final long[] limbs = new long[4];
+
+    public UInt256() {
+    }
+
+    public UInt256(long value) {
+        set(value);
+    }
+
+    public static UInt256 valueOf(BigInteger value) {
+        return new UInt256().set(value);
+    }
+
+    public UInt256 set(UInt256 value) {
+        System.arraycopy(value.limbs, 0, limbs, 0, 4);
+        return this;
+    }
+
+    /**
+     * @param value a non-negative value
+     */
+    public UInt256 set(long value) {
+        if (value < 0) {
+            throw new ArithmeticException("negative value");
+        }
+        limbs[0] = value;
+        limbs[1] = 0;
+        limbs[2] = 0;
+        limbs[3] = 0;
+        return this;
+    }
+
+    public UInt256 set(BigInteger value) {
+        if (value.signum() < 0 || value.bitLength() > 256) {
+            throw new ArithmeticException("value does not fit in 256 bits");
+        }
+        for (int i = 0; i < 4; i++) {
+            limbs[i] = value.shiftRight(64 * i).longValue();
+        }
+        return this;
+    }
+
+    public UInt256 setZero() {
+        return set(0);
+    }
+
+    public boolean isZero() {
+        return (limbs[0] | limbs[1] | limbs[2] | limbs[3]) == 0;
+    }
+
+    public int signum() {
+        return isZero() ? 0 : 1;
+    }
+
+    public UInt256 add(UInt256 value) {
+        long carry = 0;
+        for (int i = 0; i < 4; i++) {
+            long a = limbs[i];
+            long sum = a + value.limbs[i] + carry;
+            // carry is set if the sum wrapped around, when the added value is at least 2^64 - a
+            carry = (Long.compareUnsigned(sum, a) < 0 || (carry == 1 && sum == a)) ? 1 : 0;
+            limbs[i] = sum;
+        }
+        if (carry != 0) {
+            throw new ArithmeticException("overflow");
+        }
+        return this;
+    }
+
+    public UInt256 subtract(UInt256 value) {
+        long borrow = 0;
+        for (int i = 0; i < 4; i++) {
+            long a = limbs[i];
+            long difference = a - value.limbs[i] - borrow;
+            borrow = (Long.compareUnsigned(a, value.limbs[i]) < 0 || (borrow == 1 && a == value.limbs[i])) ? 1 : 0;
+            limbs[i] = difference;
+        }
+        if (borrow != 0) {
+            throw new ArithmeticException("negative result");
+        }
+        return this;
+    }
+
+    public UInt256 multiply(long value) {
+        if (value < 0) {
+            throw new ArithmeticException("negative value");
+        }
+        long carry = 0;
+        for (int i = 0; i < 4; i++) {
+            long low = limbs[i] * value;
+            long high = unsignedMultiplyHigh(limbs[i], value);
+            low += carry;
+            if (Long.compareUnsigned(low, carry) < 0) {
+                high++;
+            }
+            limbs[i] = low;
+            carry = high;
+        }
+        if (carry != 0) {
+            throw new ArithmeticException("overflow");
+        }
+        return this;
+    }
+
+    public UInt256 multiply(UInt256 value) {
+        long[] a = limbs;
+        long[] b = value.limbs;
+        long r0 = 0, r1 = 0, r2 = 0, r3 = 0;
+        // column-wise schoolbook multiplication, the 128-bit column sum is kept in (low, high)
+        long low = 0;
+        long high = 0;
+        for (int column = 0; column < 4; column++) {
+            for (int i = 0; i <= column; i++) {
+                long x = a[i];
+                long y = b[column - i];
+                long productLow = x * y;
+                low += productLow;
+                if (Long.compareUnsigned(low, productLow) < 0) {
+                    high++;
+                }
+                // the high half of the product belongs to the next column
+                if (column == 3) {
+                    if (unsignedMultiplyHigh(x, y) != 0) {
+                        throw new ArithmeticException("overflow");
+                    }
+                }
+            }
+            for (int i = 0; i < column; i++) {
+                long productHigh = unsignedMultiplyHigh(a[i], b[column - 1 - i]);
+                low += productHigh;
+                if (Long.compareUnsigned(low, productHigh) < 0) {
+                    high++;
+                }
+            }
+            switch (column) {
+                case 0: r0 = low; break;
+                case 1: r1 = low; break;
+                case 2: r2 = low; break;
+                default: r3 = low; break;
+            }
+            low = high;
+            high = 0;
+        }
+        if (low != 0) {
+            throw new ArithmeticException("overflow");
+        }
+        for (int i = 1; i < 4; i++) {
+            for (int j = 4 - i; j < 4; j++) {
+                if (a[i] != 0 && b[j] != 0) {
+                    throw new ArithmeticException("overflow");
+                }
+            }
+        }
+        limbs[0] = r0;
+        limbs[1] = r1;
+        limbs[2] = r2;
+        limbs[3] = r3;
+        return this;
+    }
+
+    /**
+     * Truncating division, as BigInteger.divide for non-negative values.
+     */
+    public UInt256 divide(UInt256 divisor) {
+        int[][] scratch = DIVISION_SCRATCH.get();
+        int[] u = scratch[0];
+        int[] v = scratch[1];
+        int[] q = scratch[2];
+        toDigits(limbs, u);
+        u[DIGITS] = 0;
+        toDigits(divisor.limbs, v);
+        int m = digitLength(u, DIGITS);
+        int n = digitLength(v, DIGITS);
+        if (n == 0) {
+            throw new ArithmeticException("division by zero");
+        }
+        if (m < n) {
+            return setZero();
+        }
+        for (int i = 0; i < DIGITS; i++) {
+            q[i] = 0;
+        }
+
+        if (n == 1) {
+            long divisorDigit = v[0] & MASK_32;
+            long remainder = 0;
+            for (int j = m - 1; j >= 0; j--) {
+                long dividend = (remainder << 32) | (u[j] & MASK_32);
+                q[j] = (int) Long.divideUnsigned(dividend, divisorDigit);
+                remainder = Long.remainderUnsigned(dividend, divisorDigit);
+            }
+        } else {
+            divideDigits(u, v, q, m, n);
+        }
+
+        for (int i = 0; i < 4; i++) {
+            limbs[i] = (q[2 * i] & MASK_32) | ((long) q[2 * i + 1] << 32);
+        }
+        return this;
+    }
+
+    public BigInteger toBigInteger() {
+        BigInteger value = BigInteger.ZERO;
+        for (int i = 3; i >= 0; i--) {
+            value = value.shiftLeft(64).or(new BigInteger(Long.toUnsignedString(limbs[i])));
+        }
+        return value;
+    }
+
+    @Override
+    public int compareTo(UInt256 other) {
+        for (int i = 3; i >= 0; i--) {
+            int comparison = Long.compareUnsigned(limbs[i], other.limbs[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof UInt256 && compareTo((UInt256) other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(limbs[0] ^ limbs[1] ^ limbs[2] ^ limbs[3]);
+    }
+
+    @Override
+    public String toString() {
+        return toBigInteger().toString();
+    }
+
+    /**
+     * Knuth's algorithm D, for a divisor of at least two 32-bit digits. u has m digits and one extra digit, v has n digits.
+     */
+    private static void divideDigits(int[] u, int[] v, int[] q, int m, int n) {
+        // normalize, so that the most significant digit of the divisor has its highest bit set
+        int shift = Integer.numberOfLeadingZeros(v[n - 1]);
+        if (shift > 0) {
+            for (int i = n - 1; i > 0; i--) {
+                v[i] = (v[i] << shift) | (v[i - 1] >>> (32 - shift));
+            }
+            v[0] = v[0] << shift;
+            u[m] = u[m - 1] >>> (32 - shift);
+            for (int i = m - 1; i > 0; i--) {
+                u[i] = (u[i] << shift) | (u[i - 1] >>> (32 - shift));
+            }
+            u[0] = u[0] << shift;
+        } else {
+            u[m] = 0;
+        }
+
+        long vTop = v[n - 1] & MASK_32;
+        long vNext = v[n - 2] & MASK_32;
+        for (int j = m - n; j >= 0; j--) {
+            // estimate the quotient digit from the top two digits
+            long dividend = ((u[j + n] & MASK_32) << 32) | (u[j + n - 1] & MASK_32);
+            long qHat = Long.divideUnsigned(dividend, vTop);
+            long rHat = Long.remainderUnsigned(dividend, vTop);
+            while (qHat > MASK_32 || Long.compareUnsigned(qHat * vNext, (rHat << 32) | (u[j + n - 2] & MASK_32)) > 0) {
+                qHat--;
+                rHat += vTop;
+                if (rHat > MASK_32) {
+                    break;
+                }
+            }
+
+            // multiply and subtract
+            long borrow = 0;
+            long t;
+            for (int i = 0; i < n; i++) {
+                long product = qHat * (v[i] & MASK_32);
+                t = (u[i + j] & MASK_32) - borrow - (product & MASK_32);
+                u[i + j] = (int) t;
+                borrow = (product >>> 32) - (t >> 32);
+            }
+            t = (u[j + n] & MASK_32) - borrow;
+            u[j + n] = (int) t;
+
+            q[j] = (int) qHat;
+            // the estimate was one too large, add the divisor back
+            if (t < 0) {
+                q[j]--;
+                long carry = 0;
+                for (int i = 0; i < n; i++) {
+                    t = (u[i + j] & MASK_32) + (v[i] & MASK_32) + carry;
+                    u[i + j] = (int) t;
+                    carry = t >>> 32;
+                }
+                u[j + n] = (int) ((u[j + n] & MASK_32) + carry);
+            }
+        }
+    }
+
+    private static void toDigits(long[] limbs, int[] digits) {
+        for (int i = 0; i < 4; i++) {
+            digits[2 * i] = (int) limbs[i];
+            digits[2 * i + 1] = (int) (limbs[i] >>> 32);
+        }
+    }
+
+    private static int digitLength(int[] digits, int length) {
+        while (length > 0 && digits[length - 1] == 0) {
+            length--;
+        }
+        return length;
+    }
+
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+}
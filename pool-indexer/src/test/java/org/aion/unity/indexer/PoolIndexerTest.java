@@ -0,0 +1,280 @@
+package org.aion.unity.indexer;
+
+import avm.Address;
+import org.aion.avm.embed.AvmRule;
+import org.aion.avm.tooling.ABIUtil;
+import org.aion.avm.userlib.CodeAndArguments;
+import org.aion.kernel.TestingState;
+import org.aion.types.AionAddress;
+import org.aion.types.Log;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the indexer from a local chain, and checks its state against the values returned by the contracts.
+ * The contract resources are built from the pool-registry module, see ContractCodeExtractor in that module.
+ */
+public class PoolIndexerTest {
+
+    private static BigInteger ENOUGH_BALANCE_TO_TRANSACT = BigInteger.TEN.pow(18 + 5);
+    private static BigInteger MIN_SELF_STAKE = new BigInteger("1000000000000000000000");
+    private static long COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD = 6 * 60 * 24 * 7;
+    private static long UNBOND_LOCK_UP_PERIOD = 6 * 60 * 24;
+    private static long TRANSFER_LOCK_UP_PERIOD = 6 * 10;
+
+    @Rule
+    public AvmRule RULE = new AvmRule(false);
+
+    private Address preminedAddress = RULE.getPreminedAccount();
+
+    private Address stakerRegistry;
+    private Address poolRegistry;
+    private PoolIndexer indexer;
+    // the block number, value and logs of each processed transaction
+    private List<Long> processedBlocks = new ArrayList<>();
+    private List<BigInteger> processedValues = new ArrayList<>();
+    private List<List<EventLog>> processedLogs = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        stakerRegistry = deploy(Hex.decode(readResource("StakerRegistry.txt")), new ArrayList<>());
+
+        byte[] coinbaseBytes = Hex.decode(readResource("PoolCoinbase.txt"));
+        byte[] arguments = ABIUtil.encodeDeploymentArguments(stakerRegistry, MIN_SELF_STAKE, BigInteger.ONE, COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD, coinbaseBytes);
+        List<Log> deploymentLogs = new ArrayList<>();
+        poolRegistry = deploy(new CodeAndArguments(Hex.decode(readResource("PoolRegistry.txt")), arguments).encodeToBytes(), deploymentLogs);
+
+        indexer = new PoolIndexer(poolRegistry, stakerRegistry, 5);
+        process(BigInteger.ZERO, deploymentLogs);
+    }
+
+    @Test
+    public void testDelegationLifecycle() {
+        Address pool = registerPool(5);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        call(delegator, nStake(3), "delegate", pool);
+        assertIndexedStake(pool, delegator);
+        assertEquals(nStake(4), indexer.getPool(pool).getTotalStake());
+        assertEquals(5 * 10000, indexer.getPool(pool).getCommissionRate());
+        assertEquals(nStake(4), indexer.getStaker(pool).getStake());
+
+        long id = (long) call(delegator, BigInteger.ZERO, "undelegate", pool, nStake(1), BigInteger.ZERO);
+        assertIndexedStake(pool, delegator);
+        assertEquals(nStake(3), indexer.getPool(pool).getTotalStake());
+        List<IndexerObjects.PendingUnbond> unbonds = indexer.getPendingUnbonds(delegator);
+        assertEquals(1, unbonds.size());
+        assertEquals(id, unbonds.get(0).getId());
+        assertEquals(pool, unbonds.get(0).getStaker());
+        assertEquals(nStake(1), unbonds.get(0).getAmount());
+
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + UNBOND_LOCK_UP_PERIOD);
+        call(delegator, BigInteger.ZERO, "finalizeUndelegate", id);
+        assertTrue(indexer.getPendingUnbonds(delegator).isEmpty());
+
+        call(delegator, BigInteger.ZERO, "enableAutoRewardsDelegation", pool, 20000);
+        assertEquals(20000, indexer.getDelegation(pool, delegator).getAutoDelegationFee());
+        call(delegator, BigInteger.ZERO, "disableAutoRewardsDedelegation", pool);
+        assertEquals(-1, indexer.getDelegation(pool, delegator).getAutoDelegationFee());
+
+        assertEquals(2, indexer.getDelegationsOfPool(pool).size());
+        assertEquals(1, indexer.getDelegationsOfDelegator(delegator).size());
+    }
+
+    @Test
+    public void testTransferDelegation() {
+        Address fromPool = registerPool(5);
+        Address toPool = registerPool(10);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        call(delegator, nStake(2), "delegate", fromPool);
+        BigInteger fee = BigInteger.TEN;
+        long id = (long) call(delegator, BigInteger.ZERO, "transferDelegation", fromPool, toPool, nStake(1), fee);
+        assertIndexedStake(fromPool, delegator);
+        assertEquals(nStake(1).subtract(fee), indexer.getPool(toPool).getPendingStake());
+        assertIndexedTotalStake(fromPool);
+        assertIndexedTotalStake(toPool);
+
+        List<IndexerObjects.PendingTransfer> transfers = indexer.getPendingTransfers(delegator);
+        assertEquals(1, transfers.size());
+        assertEquals(id, transfers.get(0).getId());
+        assertEquals(fromPool, transfers.get(0).getFromStaker());
+        assertEquals(toPool, transfers.get(0).getToStaker());
+
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + TRANSFER_LOCK_UP_PERIOD);
+        call(delegator, BigInteger.ZERO, "finalizeTransfer", id);
+        assertTrue(indexer.getPendingTransfers(delegator).isEmpty());
+        assertIndexedStake(toPool, delegator);
+        assertIndexedTotalStake(toPool);
+        assertEquals(nStake(2).subtract(fee), indexer.getStaker(toPool).getStake());
+    }
+
+    @Test
+    public void testPoolConfiguration() {
+        Address pool = registerPool(5);
+
+        long id = (long) call(pool, BigInteger.ZERO, "requestCommissionRateChange", 200000);
+        assertEquals(200000, indexer.getPendingCommissionRateChange(id).getNewCommissionRate());
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD);
+        call(pool, BigInteger.ZERO, "finalizeCommissionRateChange", id);
+        assertNull(indexer.getPendingCommissionRateChange(id));
+        assertEquals(200000, indexer.getPool(pool).getCommissionRate());
+
+        byte[] contentHash = new byte[32];
+        contentHash[0] = 1;
+        call(pool, BigInteger.ZERO, "updateMetaData", "https://new".getBytes(), contentHash);
+        assertArrayEquals("https://new".getBytes(), indexer.getPool(pool).getMetaDataUrl());
+        assertArrayEquals(contentHash, indexer.getPool(pool).getMetaDataContentHash());
+
+        Address newSigningAddress = RULE.getRandomAddress(BigInteger.ZERO);
+        call(pool, BigInteger.ZERO, "setSigningAddress", newSigningAddress);
+        assertEquals(newSigningAddress, indexer.getStaker(pool).getSigningAddress());
+
+        // the operator undelegating its self stake breaks the pool
+        call(pool, BigInteger.ZERO, "undelegate", pool, BigInteger.ONE, BigInteger.ZERO);
+        assertFalse(indexer.getStaker(pool).isActive());
+    }
+
+    @Test
+    public void testWithdrawRewards() {
+        Address pool1 = registerPool(5);
+        Address pool2 = registerPool(10);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        call(delegator, nStake(1), "delegate", pool1);
+        call(delegator, nStake(1), "delegate", pool2);
+
+        generateBlock(pool1, 1000);
+        BigInteger withdrawn = (BigInteger) call(delegator, BigInteger.ZERO, "withdrawRewards", pool1);
+        assertEquals(withdrawn, indexer.getDelegation(pool1, delegator).getWithdrawnRewards());
+
+        generateBlock(pool1, 1000);
+        generateBlock(pool2, 3000);
+        BigInteger[] rewards = (BigInteger[]) call(preminedAddress, BigInteger.ZERO, "getRewardsForPools", delegator, new Address[]{pool1, pool2});
+        call(delegator, BigInteger.ZERO, "withdrawRewardsFromPools", (Object) new Address[]{pool1, pool2});
+        assertEquals(withdrawn.add(rewards[0]), indexer.getDelegation(pool1, delegator).getWithdrawnRewards());
+        assertEquals(rewards[1], indexer.getDelegation(pool2, delegator).getWithdrawnRewards());
+    }
+
+    @Test
+    public void testCheckpoint() {
+        Address pool = registerPool(5);
+        List<Address> delegators = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+            call(delegator, nStake(1), "delegate", pool);
+            delegators.add(delegator);
+            tweakBlockNumber(RULE.kernel.getBlockNumber() + 3);
+        }
+        Checkpoint checkpoint = indexer.getLatestCheckpoint();
+        assertNotNull(checkpoint);
+        assertTrue(checkpoint.getBlockNumber() < indexer.getLastBlockNumber());
+
+        // an indexer restarted from the checkpoint catches up by processing the following blocks
+        PoolIndexer restarted = PoolIndexer.fromCheckpoint(poolRegistry, stakerRegistry, 5, checkpoint);
+        for (int i = 0; i < processedBlocks.size(); i++) {
+            if (processedBlocks.get(i) > checkpoint.getBlockNumber()) {
+                restarted.process(processedBlocks.get(i), processedValues.get(i), processedLogs.get(i));
+            }
+        }
+        for (Address delegator : delegators) {
+            assertEquals(indexer.getDelegation(pool, delegator).getStake(), restarted.getDelegation(pool, delegator).getStake());
+        }
+        assertArrayEquals(indexer.checkpoint().getState(), restarted.checkpoint().getState());
+
+        // rolling back restores the state at the checkpoint
+        BigInteger totalStake = indexer.getPool(pool).getTotalStake();
+        indexer.restore(checkpoint);
+        assertEquals(checkpoint.getBlockNumber(), indexer.getLastBlockNumber());
+        assertTrue(indexer.getPool(pool).getTotalStake().compareTo(totalStake) < 0);
+    }
+
+    private Address registerPool(int fee) {
+        Address pool = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        call(pool, nStake(1), "registerPool", pool, fee * 10000, "https://".getBytes(), new byte[32]);
+        assertNotNull(indexer.getPool(pool));
+        assertTrue(indexer.getStaker(pool).isActive());
+        assertIndexedStake(pool, pool);
+        return pool;
+    }
+
+    private void generateBlock(Address pool, long blockRewards) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getCoinbaseAddress", pool);
+        Address coinbase = (Address) RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData).getDecodedReturnData();
+        RULE.kernel.adjustBalance(new AionAddress(coinbase.toByteArray()), BigInteger.valueOf(blockRewards));
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + 1);
+    }
+
+    private void assertIndexedStake(Address pool, Address delegator) {
+        BigInteger stake = (BigInteger) call(preminedAddress, BigInteger.ZERO, "getStake", pool, delegator);
+        assertEquals(stake, indexer.getDelegation(pool, delegator).getStake());
+    }
+
+    private void assertIndexedTotalStake(Address pool) {
+        BigInteger[] totalStake = (BigInteger[]) call(preminedAddress, BigInteger.ZERO, "getTotalStake", pool);
+        assertEquals(totalStake[0], indexer.getPool(pool).getTotalStake());
+        assertEquals(totalStake[1], indexer.getPool(pool).getPendingStake());
+    }
+
+    private Object call(Address caller, BigInteger value, String methodName, Object... arguments) {
+        byte[] txData = ABIUtil.encodeMethodArguments(methodName, arguments);
+        AvmRule.ResultWrapper result = RULE.call(caller, poolRegistry, value, txData, 2_000_000L, 1L);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        process(value, result.getLogs());
+        return result.getDecodedReturnData();
+    }
+
+    private void process(BigInteger value, List<Log> logs) {
+        List<EventLog> eventLogs = toEventLogs(logs);
+        indexer.process(RULE.kernel.getBlockNumber(), value, eventLogs);
+        processedBlocks.add(RULE.kernel.getBlockNumber());
+        processedValues.add(value);
+        processedLogs.add(eventLogs);
+    }
+
+    private Address deploy(byte[] data, List<Log> logs) {
+        AvmRule.ResultWrapper result = RULE.deploy(preminedAddress, BigInteger.ZERO, data);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        logs.addAll(result.getLogs());
+        return result.getDappAddress();
+    }
+
+    private static List<EventLog> toEventLogs(List<Log> logs) {
+        List<EventLog> eventLogs = new ArrayList<>();
+        for (Log log : logs) {
+            eventLogs.add(new EventLog(log.copyOfAddress(), log.copyOfTopics(), log.copyOfData()));
+        }
+        return eventLogs;
+    }
+
+    private void tweakBlockNumber(long number) {
+        try {
+            Field f = TestingState.class.getDeclaredField("blockNumber");
+            f.setAccessible(true);
+
+            f.set(RULE.kernel, number);
+
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String readResource(String name) {
+        try (Scanner s = new Scanner(PoolIndexerTest.class.getResourceAsStream(name))) {
+            return s.nextLine();
+        }
+    }
+
+    private static BigInteger nStake(int n) {
+        return MIN_SELF_STAKE.multiply(BigInteger.valueOf(n));
+    }
+}
@@ -0,0 +1,235 @@
+package org.aion.unity.indexer;
+
+import avm.Address;
+import org.aion.avm.embed.AvmRule;
+import org.aion.avm.tooling.ABIUtil;
+import org.aion.avm.userlib.CodeAndArguments;
+import org.aion.kernel.TestingState;
+import org.aion.types.AionAddress;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the same sequence of delegations, withdrawals and block rewards against the PoolRegistry and the replica,
+ * and checks that every value returned by the contract is identical to the one computed by the replica.
+ */
+public class PoolRewardsReplicaTest {
+
+    private static BigInteger ENOUGH_BALANCE_TO_TRANSACT = BigInteger.TEN.pow(18 + 5);
+    private static BigInteger MIN_SELF_STAKE = new BigInteger("1000000000000000000000");
+    private static long COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD = 6 * 60 * 24 * 7;
+
+    @Rule
+    public AvmRule RULE = new AvmRule(false);
+
+    private Address preminedAddress = RULE.getPreminedAccount();
+
+    private Address stakerRegistry;
+    private Address poolRegistry;
+    private Address pool;
+    private AionAddress coinbaseAddress;
+    private List<Address> delegators = new ArrayList<>();
+
+    private PoolRewardsReplica.PoolRewards poolRewards;
+    private PoolRewardsReplica replica;
+    private Map<Address, PoolRewardsReplica.DelegatorInfo> delegatorInfos = new HashMap<>();
+    // block rewards sent to the coinbase address that the contract has not detected yet
+    private UInt256 pendingBlockRewards = new UInt256();
+
+    @Before
+    public void setup() {
+        // blocks are only advanced by the test, so that the replica uses the block number of each call
+        RULE.disableAutomaticBlockGeneration();
+        stakerRegistry = deploy(Hex.decode(readResource("StakerRegistry.txt")));
+        byte[] coinbaseBytes = Hex.decode(readResource("PoolCoinbase.txt"));
+        byte[] arguments = ABIUtil.encodeDeploymentArguments(stakerRegistry, MIN_SELF_STAKE, BigInteger.ONE, COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD, coinbaseBytes);
+        poolRegistry = deploy(new CodeAndArguments(Hex.decode(readResource("PoolRegistry.txt")), arguments).encodeToBytes());
+
+        int commissionRate = 123457;
+        pool = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        call(pool, MIN_SELF_STAKE, "registerPool", pool, commissionRate, "https://".getBytes(), new byte[32]);
+        byte[] txData = ABIUtil.encodeMethodArguments("getCoinbaseAddress", pool);
+        Address coinbase = (Address) RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData).getDecodedReturnData();
+        coinbaseAddress = new AionAddress(coinbase.toByteArray());
+
+        poolRewards = new PoolRewardsReplica.PoolRewards(commissionRate);
+        replica = new PoolRewardsReplica(poolRewards);
+        replica.onDelegate(getDelegatorInfo(pool), RULE.kernel.getBlockNumber(), UInt256.valueOf(MIN_SELF_STAKE));
+
+        delegators.add(pool);
+        for (int i = 0; i < 3; i++) {
+            delegators.add(RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT));
+        }
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(7);
+        UInt256 amount = new UInt256();
+        PoolRewardsReplica.DelegatorInfo previousDelegatorInfo = new PoolRewardsReplica.DelegatorInfo();
+        for (int i = 0; i < 150; i++) {
+            Address delegator = delegators.get(random.nextInt(delegators.size()));
+            PoolRewardsReplica.DelegatorInfo delegatorInfo = getDelegatorInfo(delegator);
+            switch (random.nextInt(6)) {
+                case 0:
+                    // odd amounts of different magnitudes, to exercise the rounding
+                    BigInteger blockReward = new BigInteger(1 + random.nextInt(80), random).add(BigInteger.ONE);
+                    RULE.kernel.adjustBalance(coinbaseAddress, blockReward);
+                    pendingBlockRewards.add(UInt256.valueOf(blockReward));
+                    break;
+                case 1:
+                    BigInteger stake = new BigInteger(MIN_SELF_STAKE.bitLength() - 1, random).add(BigInteger.ONE);
+                    call(delegator, stake, "delegate", pool);
+                    detectBlockRewards();
+                    replica.onDelegate(delegatorInfo, RULE.kernel.getBlockNumber(), amount.set(stake));
+                    break;
+                case 2:
+                    // the operator keeps its self stake, so that the pool stays active
+                    if (!delegator.equals(pool) && !delegatorInfo.getStake().isZero()) {
+                        BigInteger unbond = delegatorInfo.getStake().toBigInteger().divide(BigInteger.valueOf(1 + random.nextInt(3)));
+                        call(delegator, BigInteger.ZERO, "undelegate", pool, unbond, BigInteger.ZERO);
+                        detectBlockRewards();
+                        replica.onUndelegate(delegatorInfo, RULE.kernel.getBlockNumber(), amount.set(unbond));
+                    }
+                    break;
+                case 3:
+                    BigInteger withdrawn = (BigInteger) call(delegator, BigInteger.ZERO, "withdrawRewards", pool);
+                    detectBlockRewards();
+                    withdraw(delegator, delegatorInfo, amount);
+                    assertEquals(withdrawn, amount.toBigInteger());
+                    break;
+                case 4:
+                    call(delegator, BigInteger.ZERO, "redelegateRewards", pool);
+                    detectBlockRewards();
+                    previousDelegatorInfo.copyFrom(delegatorInfo);
+                    withdraw(delegator, delegatorInfo, amount);
+                    if (!amount.isZero()) {
+                        replica.onDelegate(delegatorInfo, RULE.kernel.getBlockNumber(), amount);
+                    } else {
+                        // the contract only stores the delegator if there is something to delegate
+                        delegatorInfo.copyFrom(previousDelegatorInfo);
+                    }
+                    break;
+                default:
+                    tweakBlockNumber(RULE.kernel.getBlockNumber() + random.nextInt(4));
+                    break;
+            }
+            assertReplicaState();
+        }
+    }
+
+    @Test
+    public void testCommissionRateChange() {
+        Address delegator = delegators.get(1);
+        call(delegator, MIN_SELF_STAKE, "delegate", pool);
+        replica.onDelegate(getDelegatorInfo(delegator), RULE.kernel.getBlockNumber(), UInt256.valueOf(MIN_SELF_STAKE));
+
+        long id = (long) call(pool, BigInteger.ZERO, "requestCommissionRateChange", 999999);
+        RULE.kernel.adjustBalance(coinbaseAddress, BigInteger.valueOf(1000003));
+        pendingBlockRewards.add(new UInt256(1000003));
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD);
+
+        call(pool, BigInteger.ZERO, "finalizeCommissionRateChange", id);
+        detectBlockRewards();
+        replica.setCommissionRate(999999);
+        assertReplicaState();
+
+        RULE.kernel.adjustBalance(coinbaseAddress, BigInteger.valueOf(7777777));
+        pendingBlockRewards.add(new UInt256(7777777));
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + 1);
+        assertReplicaState();
+    }
+
+    /**
+     * Compares the contract's view of the pool with the replica. getRewards is replayed on copies, since it does not update the contract state.
+     */
+    private void assertReplicaState() {
+        long blockNumber = RULE.kernel.getBlockNumber();
+        PoolRewardsReplica.PoolRewards poolRewardsCopy = new PoolRewardsReplica.PoolRewards(0);
+        PoolRewardsReplica.DelegatorInfo delegatorInfoCopy = new PoolRewardsReplica.DelegatorInfo();
+        PoolRewardsReplica replicaCopy = new PoolRewardsReplica(poolRewardsCopy);
+        UInt256 rewards = new UInt256();
+        UInt256 commission = new UInt256();
+
+        for (Address delegator : delegators) {
+            PoolRewardsReplica.DelegatorInfo delegatorInfo = getDelegatorInfo(delegator);
+            assertEquals(call(preminedAddress, BigInteger.ZERO, "getStake", pool, delegator), delegatorInfo.getStake().toBigInteger());
+
+            poolRewardsCopy.copyFrom(poolRewards);
+            delegatorInfoCopy.copyFrom(delegatorInfo);
+            if (!pendingBlockRewards.isZero()) {
+                replicaCopy.onBlock(blockNumber, pendingBlockRewards);
+            }
+            replicaCopy.onWithdraw(delegatorInfoCopy, blockNumber, rewards);
+            if (delegator.equals(pool)) {
+                rewards.add(replicaCopy.onWithdrawOperator(commission));
+            }
+            assertEquals(call(preminedAddress, BigInteger.ZERO, "getRewards", pool, delegator), rewards.toBigInteger());
+        }
+        assertEquals(call(preminedAddress, BigInteger.ZERO, "getOutstandingRewards", pool), poolRewards.getOutstandingRewards().toBigInteger());
+        BigInteger[] totalStake = (BigInteger[]) call(preminedAddress, BigInteger.ZERO, "getTotalStake", pool);
+        assertEquals(totalStake[0], poolRewards.getAccumulatedStake().toBigInteger());
+    }
+
+    private void withdraw(Address delegator, PoolRewardsReplica.DelegatorInfo delegatorInfo, UInt256 amount) {
+        replica.onWithdraw(delegatorInfo, RULE.kernel.getBlockNumber(), amount);
+        if (delegator.equals(pool)) {
+            amount.add(replica.onWithdrawOperator(new UInt256()));
+        }
+    }
+
+    private void detectBlockRewards() {
+        if (!pendingBlockRewards.isZero()) {
+            replica.onBlock(RULE.kernel.getBlockNumber(), pendingBlockRewards);
+            pendingBlockRewards.setZero();
+        }
+    }
+
+    private PoolRewardsReplica.DelegatorInfo getDelegatorInfo(Address delegator) {
+        return delegatorInfos.computeIfAbsent(delegator, d -> new PoolRewardsReplica.DelegatorInfo());
+    }
+
+    private Object call(Address caller, BigInteger value, String methodName, Object... arguments) {
+        byte[] txData = ABIUtil.encodeMethodArguments(methodName, arguments);
+        AvmRule.ResultWrapper result = RULE.call(caller, poolRegistry, value, txData, 2_000_000L, 1L);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        return result.getDecodedReturnData();
+    }
+
+    private Address deploy(byte[] data) {
+        AvmRule.ResultWrapper result = RULE.deploy(preminedAddress, BigInteger.ZERO, data);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        return result.getDappAddress();
+    }
+
+    private void tweakBlockNumber(long number) {
+        try {
+            Field f = TestingState.class.getDeclaredField("blockNumber");
+            f.setAccessible(true);
+
+            f.set(RULE.kernel, number);
+
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String readResource(String name) {
+        try (Scanner s = new Scanner(PoolRewardsReplicaTest.class.getResourceAsStream(name))) {
+            return s.nextLine();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.aion.unity.indexer;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class UInt256Test {
+
+    private static final BigInteger MAX = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+
+    @Test
+    public void testArithmeticMatchesBigInteger() {
+        Random random = new Random(11);
+        UInt256 result = new UInt256();
+        UInt256 operand = new UInt256();
+        for (int i = 0; i < 100000; i++) {
+            BigInteger a = randomValue(random);
+            BigInteger b = randomValue(random);
+
+            assertResult(a.add(b), () -> result.set(a).add(operand.set(b)));
+            assertResult(a.subtract(b), () -> result.set(a).subtract(operand.set(b)));
+            assertResult(a.multiply(b), () -> result.set(a).multiply(operand.set(b)));
+            assertResult(a.multiply(BigInteger.valueOf(b.longValue() & Long.MAX_VALUE)), () -> result.set(a).multiply(b.longValue() & Long.MAX_VALUE));
+            if (b.signum() != 0) {
+                assertEquals(a.divide(b), result.set(a).divide(operand.set(b)).toBigInteger());
+            }
+            assertEquals(a.compareTo(b), result.set(a).compareTo(operand.set(b)));
+        }
+    }
+
+    @Test
+    public void testDivisionCorrection() {
+        // divisors whose top digits make the quotient estimate too large
+        BigInteger dividend = new BigInteger("7fffffff800000010000000000000000", 16);
+        BigInteger divisor = new BigInteger("800000000000000000000003", 16);
+        assertEquals(dividend.divide(divisor), UInt256.valueOf(dividend).divide(UInt256.valueOf(divisor)).toBigInteger());
+
+        dividend = new BigInteger("ffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff", 16);
+        divisor = new BigInteger("ffffffffffffffffffffffffffffffff00000000000000000000000000000001", 16);
+        assertEquals(dividend.divide(divisor), UInt256.valueOf(dividend).divide(UInt256.valueOf(divisor)).toBigInteger());
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testDivisionByZero() {
+        new UInt256(1).divide(new UInt256());
+    }
+
+    @Test
+    public void testAliasing() {
+        UInt256 value = new UInt256(3);
+        assertEquals(BigInteger.valueOf(9), value.multiply(value).toBigInteger());
+        assertEquals(BigInteger.valueOf(18), value.add(value).toBigInteger());
+        assertEquals(BigInteger.ONE, value.divide(value).toBigInteger());
+        assertTrue(value.subtract(value).isZero());
+    }
+
+    private static void assertResult(BigInteger expected, Supplier<UInt256> operation) {
+        if (expected.signum() < 0 || expected.compareTo(MAX) > 0) {
+            try {
+                operation.get();
+                fail("expected " + expected + " to be out of range");
+            } catch (ArithmeticException e) {
+                // expected
+            }
+        } else {
+            assertEquals(expected, operation.get().toBigInteger());
+        }
+    }
+
+    // values with random bit lengths, and digits that are all zero or all one bits
+    private static BigInteger randomValue(Random random) {
+        int bits = random.nextInt(257);
+        switch (random.nextInt(4)) {
+            case 0:
+                return BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE);
+            case 1:
+                return BigInteger.ONE.shiftLeft(Math.min(bits, 255));
+            default:
+                return new BigInteger(bits, random);
+        }
+    }
+}
@@ -23,13 +23,16 @@ public class PoolRegistry {
     private static final BigInteger MIN_SELF_STAKE; // 1000 Aions
     private static final BigInteger MIN_SELF_STAKE_PERCENTAGE; // 1%
     private static final long COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD; // 6 * 60 * 24 * 7
+    private static final long TRANSFER_LOCK_UP_PERIOD; // read from the StakerRegistry
+    // the maximum number of matured transfers finalized by a pool interaction of their initiator
+    private static final int MAX_AUTO_FINALIZED_TRANSFERS = 3;
 
     private static final Address STAKER_REGISTRY;
 
     // used for validating the sender address of a value transfer
     private static Address reentrantPoolCoinbaseAddress;
 
-    // used for keeping track of the reentrant value transfers from the reentrantPoolCoinbaseAddress and STAKER_REGISTRY
+    // used for keeping track of the reentrant value transfers from the reentrantPoolCoinbaseAddress
     private static BigInteger reentrantValueTransferAmount;
 
     private static long nextCommissionRateUpdateRequestId = 0;
@@ -41,6 +44,13 @@ public class PoolRegistry {
         MIN_SELF_STAKE_PERCENTAGE = decoder.decodeOneBigInteger();
         COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD = decoder.decodeOneLong();
 
+        // the transfer lock-up period is used for detecting matured transfers without calling the StakerRegistry
+        String methodName = "getTransferLockUpPeriod";
+        byte[] data = new byte[getStringSize(methodName)];
+        new ABIStreamingEncoder(data).encodeOneString(methodName);
+        Result result = secureCall(STAKER_REGISTRY, BigInteger.ZERO, data, Blockchain.getRemainingEnergy());
+        TRANSFER_LOCK_UP_PERIOD = new ABIDecoder(result.getReturnData()).decodeOneLong();
+
         byte[] poolCoinbaseContract = decoder.decodeOneByteArray();
         System.arraycopy(Blockchain.getAddress().toByteArray(), 0, poolCoinbaseContract, poolCoinbaseContract.length - Address.LENGTH, Address.LENGTH);
         PoolRegistryStorage.putCoinbaseContractBytes(poolCoinbaseContract);
@@ -107,6 +117,7 @@ public class PoolRegistry {
         PoolRegistryStorage.putDelegator(caller, caller, delegatorInfo);
         PoolRegistryStorage.putPoolRewards(caller, rewards);
         PoolRegistryStorage.putPoolMetaData(caller, metaDataContentHash, metaDataUrl);
+        PoolRegistryStorage.addPool(caller);
 
         PoolRegistryEvents.registeredPool(caller, commissionRate, metaDataContentHash, metaDataUrl);
     }
@@ -121,6 +132,8 @@ public class PoolRegistry {
         Address caller = Blockchain.getCaller();
         BigInteger value = Blockchain.getValue();
 
+        finalizeMaturedTransfers(caller);
+
         PoolStorageObjects.PoolRewards poolRewards = validateAndGetPoolRewards(pool);
 
         requirePositive(value);
@@ -136,22 +149,15 @@ public class PoolRegistry {
     private static void delegate(Address delegator, Address pool, BigInteger value, boolean doDelegate, PoolRewardsStateMachine stateMachine, PoolStorageObjects.DelegatorInfo delegatorInfo) {
 
         BigInteger totalStakeAfterDelegation = stateMachine.currentPoolRewards.accumulatedStake.add(value);
-        BigInteger poolSelfStake = getSelfStake(pool);
 
         // delegators should not be able to put the pool into a broken state by delegating an amount over the capacity,
-        // or delegate to a pool in broken state
-        if(!delegator.equals(pool) && !isSelfStakeSatisfied(poolSelfStake, totalStakeAfterDelegation, stateMachine.currentPoolRewards.pendingStake)){
+        // or delegate to a pool in broken state. Transfers are checked by getCompletablePoolRewards before they are finalized.
+        if(doDelegate && !delegator.equals(pool) && !isSelfStakeSatisfied(getSelfStake(pool), totalStakeAfterDelegation, stateMachine.currentPoolRewards.pendingStake)){
             Blockchain.revert();
         }
 
         if (doDelegate) {
-            String methodName = "bond";
-            // encoded data is directly written to the byte array to reduce energy usage
-            byte[] data = new byte[getStringSize(methodName) + getAddressSize()];
-            new ABIStreamingEncoder(data)
-                    .encodeOneString(methodName)
-                    .encodeOneAddress(pool);
-            secureCall(STAKER_REGISTRY, value, data, Blockchain.getRemainingEnergy());
+            bondInStakerRegistry(pool, value);
         }
 
         // update rewards state machine and delegator info
@@ -184,6 +190,8 @@ public class PoolRegistry {
      */
     @Callable
     public static long undelegate(Address pool, BigInteger amount, BigInteger fee) {
+        finalizeMaturedTransfers(Blockchain.getCaller());
+
         PoolStorageObjects.PoolRewards poolRewards = validateAndGetPoolRewards(pool);
 
         requirePositive(amount);
@@ -245,11 +253,13 @@ public class PoolRegistry {
     @Callable
     public static void redelegateRewards(Address pool) {
         Address caller = Blockchain.getCaller();
+        finalizeMaturedTransfers(caller);
+
         PoolStorageObjects.PoolRewards poolRewards = validateAndGetPoolRewards(pool);
         requireNoValue();
 
         PoolRewardsStateMachine stateMachine = new PoolRewardsStateMachine(poolRewards);
-        detectBlockRewards(stateMachine);
+        boolean hasBlockRewards = detectBlockRewards(stateMachine);
 
         PoolStorageObjects.DelegatorInfo delegatorInfo = PoolRegistryStorage.getDelegator(pool, caller);
         // do a withdraw
@@ -260,7 +270,11 @@ public class PoolRegistry {
 
         // amount > 0
         if (amount.signum() == 1) {
+            ensureLiquidity(stateMachine.currentPoolRewards);
             delegate(caller, pool, amount, true, stateMachine, delegatorInfo);
+        } else if (hasBlockRewards) {
+            // the detected block rewards have been credited to the pool
+            PoolRegistryStorage.putPoolRewards(pool, stateMachine.currentPoolRewards);
         }
     }
 
@@ -276,6 +290,7 @@ public class PoolRegistry {
     @Callable
     public static long transferDelegation(Address fromPool, Address toPool, BigInteger amount, BigInteger fee) {
         Address caller = Blockchain.getCaller();
+        finalizeMaturedTransfers(caller);
 
         PoolStorageObjects.PoolRewards fromPoolRewards = validateAndGetPoolRewards(fromPool);
         PoolStorageObjects.PoolRewards toPoolRewards = validateAndGetPoolRewards(toPool);
@@ -324,6 +339,7 @@ public class PoolRegistry {
         long id = new ABIDecoder(result.getReturnData()).decodeOneLong();
         PoolStorageObjects.StakeTransfer transfer = new PoolStorageObjects.StakeTransfer(caller, fromPool, toPool, amount);
         PoolRegistryStorage.putPendingTransfer(id, transfer);
+        queueTransfer(caller, id);
 
         // transfer out of a broken fromPool could make it active
         // this call can only be from a delegator
@@ -350,24 +366,16 @@ public class PoolRegistry {
     public static void finalizeUndelegate(long id) {
         requireNoValue();
 
-        String methodName = "finalizeUnbond";
+        String methodName = "finalizeUnbondTo";
         // encoded data is directly written to the byte array to reduce energy usage
-        byte[] data = new byte[getStringSize(methodName) + 1 + Long.BYTES];
+        byte[] data = new byte[getStringSize(methodName) + 1 + Long.BYTES + getAddressSize()];
         new ABIStreamingEncoder(data)
                 .encodeOneString(methodName)
-                .encodeOneLong(id);
+                .encodeOneLong(id)
+                .encodeOneAddress(Blockchain.getCaller());
 
-        // call STAKER_REGISTRY to finalize the undelegate and transfer the value to the recipient
+        // call STAKER_REGISTRY to finalize the undelegate, transfer the value to the recipient and the fee to the caller
         secureCall(STAKER_REGISTRY, BigInteger.ZERO, data, Blockchain.getRemainingEnergy());
-
-        // At this point the StakerRegistry has transferred the fee amount to this contract in a re-entrant call.
-        // This is a safe assumption since these two contracts are tightly coupled. Thus, the fee amount is not explicitly stored to save energy.
-        assert reentrantValueTransferAmount != null;
-        BigInteger fee = reentrantValueTransferAmount;
-        reentrantValueTransferAmount = null;
-
-        // transfer the fee to the caller
-        secureCall(Blockchain.getCaller(), fee, new byte[0], Blockchain.getRemainingEnergy());
     }
 
     /**
@@ -381,27 +389,153 @@ public class PoolRegistry {
         // validate transfer exists
         PoolStorageObjects.StakeTransfer transfer = PoolRegistryStorage.getPendingTransfer(id);
         require(transfer != null);
+        PoolStorageObjects.PoolRewards toPoolRewards = getCompletablePoolRewards(new PoolStorageObjects.StakeTransfer[]{transfer}, 1)[0];
+        require(toPoolRewards != null);
+
+        String methodName = "finalizeTransferTo";
+        // encoded data is directly written to the byte array to reduce energy usage
+        byte[] data = new byte[getStringSize(methodName) + 1 + Long.BYTES + getAddressSize()];
+        new ABIStreamingEncoder(data)
+                .encodeOneString(methodName)
+                .encodeOneLong(id)
+                .encodeOneAddress(Blockchain.getCaller());
+
+        // StakerRegistry transfers the fee directly to the caller and returns it
+        Result result = secureCall(STAKER_REGISTRY, BigInteger.ZERO, data, Blockchain.getRemainingEnergy());
+        BigInteger fee = new ABIDecoder(result.getReturnData()).decodeOneBigInteger();
+
+        completeTransfer(id, transfer, fee, toPoolRewards);
+    }
 
-        String methodName = "finalizeTransfer";
+    /**
+     * Finalizes multiple undelegate operations. Undelegations which do not exist or are still in the lock-up period are skipped.
+     * The sum of the fees is transferred to the caller in one transfer.
+     *
+     * @param ids pending undelegation ids
+     */
+    @Callable
+    public static void finalizeUndelegates(long[] ids) {
+        requireNonNull(ids);
+        requireNoValue();
+
+        String methodName = "finalizeUnbondsTo";
         // encoded data is directly written to the byte array to reduce energy usage
-        byte[] data = new byte[getStringSize(methodName) + 1 + Long.BYTES];
+        byte[] data = new byte[getStringSize(methodName) + ABIStreamingEncoder.getLengthOfOneLongArray(ids) + getAddressSize()];
         new ABIStreamingEncoder(data)
                 .encodeOneString(methodName)
-                .encodeOneLong(id);
+                .encodeOneLongArray(ids)
+                .encodeOneAddress(Blockchain.getCaller());
 
+        // call STAKER_REGISTRY to finalize the matured undelegations, transfer the values to the recipients and the sum of the fees to the caller
         secureCall(STAKER_REGISTRY, BigInteger.ZERO, data, Blockchain.getRemainingEnergy());
+    }
 
-        // At this point the StakerRegistry has transferred the fee amount to this contract in a re-entrant call.
-        // This is a safe assumption since these two contracts are tightly coupled. Thus, the fee amount is not explicitly stored to save energy.
-        assert reentrantValueTransferAmount != null;
-        BigInteger fee = reentrantValueTransferAmount;
-        reentrantValueTransferAmount = null;
+    /**
+     * Finalizes multiple transfer operations. Transfers which do not exist, are still in the lock-up period, or whose
+     * destination pool cannot take the stake (broken or over capacity) are skipped.
+     * The sum of the fees is transferred to the caller in one transfer.
+     *
+     * @param ids pending transfer ids
+     */
+    @Callable
+    public static void finalizeTransfers(long[] ids) {
+        requireNonNull(ids);
+        requireNoValue();
+
+        long[] pendingIds = new long[ids.length];
+        PoolStorageObjects.StakeTransfer[] transfers = new PoolStorageObjects.StakeTransfer[ids.length];
+        int count = 0;
+        for (long id : ids) {
+            PoolStorageObjects.StakeTransfer transfer = PoolRegistryStorage.getPendingTransfer(id);
+            if (transfer != null) {
+                pendingIds[count] = id;
+                transfers[count] = transfer;
+                count++;
+            }
+        }
+
+        PoolStorageObjects.PoolRewards[] toPoolRewards = getCompletablePoolRewards(transfers, count);
+        int completableCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (toPoolRewards[i] != null) {
+                pendingIds[completableCount] = pendingIds[i];
+                transfers[completableCount] = transfers[i];
+                toPoolRewards[completableCount] = toPoolRewards[i];
+                completableCount++;
+            }
+        }
+        if (completableCount == 0) {
+            return;
+        }
+        ids = new long[completableCount];
+        System.arraycopy(pendingIds, 0, ids, 0, completableCount);
+
+        String methodName = "finalizeTransfersTo";
+        // encoded data is directly written to the byte array to reduce energy usage
+        byte[] data = new byte[getStringSize(methodName) + ABIStreamingEncoder.getLengthOfOneLongArray(ids) + getAddressSize()];
+        new ABIStreamingEncoder(data)
+                .encodeOneString(methodName)
+                .encodeOneLongArray(ids)
+                .encodeOneAddress(Blockchain.getCaller());
+
+        // StakerRegistry transfers the sum of the fees directly to the caller
+        Result result = secureCall(STAKER_REGISTRY, BigInteger.ZERO, data, Blockchain.getRemainingEnergy());
+
+        // the fee of each finalized transfer, or null if the transfer was skipped
+        BigInteger[] fees = new ABIDecoder(result.getReturnData()).decodeOneBigIntegerArray();
+
+        for (int i = 0; i < ids.length; i++) {
+            // skipped by the StakerRegistry, or a duplicate id
+            if (fees[i] == null) {
+                continue;
+            }
+            completeTransfer(ids[i], transfers[i], fees[i], toPoolRewards[i]);
+        }
+    }
+
+    /**
+     * Reads the destination pools of the transfers and checks them the same way a delegation is checked: delegators should
+     * not be able to put a pool into a broken state by transferring an amount over the capacity, or transfer to a pool in broken state.
+     * The check does not depend on the fee, or on the transfers completed before it: completing a transfer moves the stake
+     * from the pending stake of the pool to its delegated stake, so the sum of the two stays the same.
+     * Transfers to the same pool share the PoolRewards object, which is updated and written back by completeTransfer.
+     *
+     * @return the PoolRewards of the destination pool of each transfer, or null if the transfer cannot be completed
+     */
+    private static PoolStorageObjects.PoolRewards[] getCompletablePoolRewards(PoolStorageObjects.StakeTransfer[] transfers, int count) {
+        PoolStorageObjects.PoolRewards[] poolRewards = new PoolStorageObjects.PoolRewards[count];
+        boolean[] canTakeStake = new boolean[count];
+        PoolStorageObjects.PoolRewards[] completablePoolRewards = new PoolStorageObjects.PoolRewards[count];
+        for (int i = 0; i < count; i++) {
+            Address pool = transfers[i].toPool;
+            int j = 0;
+            while (j < i && !transfers[j].toPool.equals(pool)) {
+                j++;
+            }
+            if (j < i) {
+                poolRewards[i] = poolRewards[j];
+                canTakeStake[i] = canTakeStake[j];
+            } else {
+                poolRewards[i] = PoolRegistryStorage.getPoolRewards(pool);
+                canTakeStake[i] = isSelfStakeSatisfied(getSelfStake(pool), poolRewards[i].accumulatedStake, poolRewards[i].pendingStake);
+            }
+            if (canTakeStake[i] || transfers[i].initiator.equals(pool)) {
+                completablePoolRewards[i] = poolRewards[i];
+            }
+        }
+        return completablePoolRewards;
+    }
+
+    /**
+     * Moves the stake of a transfer finalized in the StakerRegistry from the pending stake of the destination pool to the initiator's delegation.
+     * The destination pool is read and checked by getCompletablePoolRewards.
+     */
+    private static void completeTransfer(long id, PoolStorageObjects.StakeTransfer transfer, BigInteger fee, PoolStorageObjects.PoolRewards rewards) {
         assert fee.compareTo(transfer.amount) <= 0;
         BigInteger remainingTransferValue = transfer.amount.subtract(fee);
 
         // remove transfer
         PoolRegistryStorage.putPendingTransfer(id, null);
-        PoolStorageObjects.PoolRewards rewards = PoolRegistryStorage.getPoolRewards(transfer.toPool);
 
         // subtract the transfer amount from pending stake
         assert remainingTransferValue.compareTo(rewards.pendingStake) <= 0;
@@ -413,9 +547,95 @@ public class PoolRegistry {
         detectBlockRewards(stateMachine);
 
         delegate(transfer.initiator, transfer.toPool, remainingTransferValue, false, stateMachine, delegatorInfo);
+    }
+
+    private static void queueTransfer(Address initiator, long id) {
+        long blockNumber = Blockchain.getBlockNumber();
+        PoolStorageObjects.TransferQueue queue = PoolRegistryStorage.getTransferQueue(initiator);
+        if (queue == null) {
+            queue = new PoolStorageObjects.TransferQueue(0, 0, blockNumber);
+        }
+        PoolRegistryStorage.putQueuedTransfer(initiator, queue.tail, new PoolStorageObjects.QueuedTransfer(id, blockNumber));
+        queue.tail++;
+        PoolRegistryStorage.putTransferQueue(initiator, queue);
+    }
+
+    /**
+     * Finalizes up to MAX_AUTO_FINALIZED_TRANSFERS of the initiator's transfers which have passed the lock-up period, oldest first.
+     * The fees are transferred to the initiator. Since the finalized transfers update the destination pools, this method
+     * is called before an entry point reads any pool state.
+     * A transfer whose destination pool cannot take the stake is removed from the queue and stays pending, so that the
+     * caller's operation is not reverted. It can be finalized by id once the pool can take the stake.
+     */
+    private static void finalizeMaturedTransfers(Address initiator) {
+        PoolStorageObjects.TransferQueue queue = PoolRegistryStorage.getTransferQueue(initiator);
+        long blockNumber = Blockchain.getBlockNumber();
+
+        // since the block number values are never set by a contract caller, overflows cannot happen here.
+        if (queue == null || blockNumber < queue.headBlockNumber + TRANSFER_LOCK_UP_PERIOD) {
+            return;
+        }
+
+        long[] ids = new long[MAX_AUTO_FINALIZED_TRANSFERS];
+        PoolStorageObjects.StakeTransfer[] transfers = new PoolStorageObjects.StakeTransfer[MAX_AUTO_FINALIZED_TRANSFERS];
+        int count = 0;
+        while (count < MAX_AUTO_FINALIZED_TRANSFERS && queue.head < queue.tail) {
+            PoolStorageObjects.QueuedTransfer queuedTransfer = PoolRegistryStorage.getQueuedTransfer(initiator, queue.head);
+            queue.headBlockNumber = queuedTransfer.blockNumber;
+            // the queue is ordered by block number, all the following transfers are in the lock-up period as well
+            if (blockNumber < queuedTransfer.blockNumber + TRANSFER_LOCK_UP_PERIOD) {
+                break;
+            }
+
+            PoolRegistryStorage.putQueuedTransfer(initiator, queue.head, null);
+            queue.head++;
+
+            // transfers which have already been finalized by id are dropped from the queue
+            PoolStorageObjects.StakeTransfer transfer = PoolRegistryStorage.getPendingTransfer(queuedTransfer.id);
+            if (transfer != null) {
+                ids[count] = queuedTransfer.id;
+                transfers[count] = transfer;
+                count++;
+            }
+        }
+        PoolRegistryStorage.putTransferQueue(initiator, queue.head == queue.tail ? null : queue);
+
+        PoolStorageObjects.PoolRewards[] toPoolRewards = getCompletablePoolRewards(transfers, count);
+        int completableCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (toPoolRewards[i] != null) {
+                ids[completableCount] = ids[i];
+                transfers[completableCount] = transfers[i];
+                toPoolRewards[completableCount] = toPoolRewards[i];
+                completableCount++;
+            }
+        }
+        if (completableCount == 0) {
+            return;
+        }
+        if (completableCount < ids.length) {
+            long[] maturedIds = new long[completableCount];
+            System.arraycopy(ids, 0, maturedIds, 0, completableCount);
+            ids = maturedIds;
+        }
 
-        // transfer fee
-        secureCall(Blockchain.getCaller(), fee, new byte[0], Blockchain.getRemainingEnergy());
+        String methodName = "finalizeTransfersTo";
+        // encoded data is directly written to the byte array to reduce energy usage
+        byte[] data = new byte[getStringSize(methodName) + ABIStreamingEncoder.getLengthOfOneLongArray(ids) + getAddressSize()];
+        new ABIStreamingEncoder(data)
+                .encodeOneString(methodName)
+                .encodeOneLongArray(ids)
+                .encodeOneAddress(initiator);
+
+        // StakerRegistry transfers the sum of the fees to the initiator
+        Result result = secureCall(STAKER_REGISTRY, BigInteger.ZERO, data, Blockchain.getRemainingEnergy());
+        BigInteger[] fees = new ABIDecoder(result.getReturnData()).decodeOneBigIntegerArray();
+
+        for (int i = 0; i < ids.length; i++) {
+            // both registries use the same lock-up period, so all the transfers are finalized
+            assert fees[i] != null;
+            completeTransfer(ids[i], transfers[i], fees[i], toPoolRewards[i]);
+        }
     }
 
     /**
@@ -426,35 +646,80 @@ public class PoolRegistry {
     @Callable
     public static BigInteger withdrawRewards(Address pool) {
         Address caller = Blockchain.getCaller();
+        finalizeMaturedTransfers(caller);
 
         PoolStorageObjects.PoolRewards poolRewards = validateAndGetPoolRewards(pool);
         requireNoValue();
 
+        BigInteger amount = settleWithdrawal(pool, caller, poolRewards);
+
+        PoolRegistryEvents.withdrew(caller, pool, amount);
+
+        // do a transfer if amount > 0
+        if (amount.signum() == 1) {
+            secureCall(caller, amount, new byte[0], Blockchain.getRemainingEnergy());
+        }
+
+        return amount;
+    }
+
+    /**
+     * Withdraws block rewards from multiple pools. The rewards are settled in each pool and the total amount is transferred to the caller in one transfer.
+     *
+     * @param pools the pool addresses
+     * @return the total amount of rewards withdrawn
+     */
+    @Callable
+    public static BigInteger withdrawRewardsFromPools(Address[] pools) {
+        Address caller = Blockchain.getCaller();
+        requireNonNull(pools);
+        requireNoValue();
+
+        finalizeMaturedTransfers(caller);
+
+        BigInteger[] amounts = new BigInteger[pools.length];
+        BigInteger total = BigInteger.ZERO;
+        for (int i = 0; i < pools.length; i++) {
+            PoolStorageObjects.PoolRewards poolRewards = validateAndGetPoolRewards(pools[i]);
+            amounts[i] = settleWithdrawal(pools[i], caller, poolRewards);
+            total = total.add(amounts[i]);
+        }
+
+        PoolRegistryEvents.withdrewFromPools(caller, pools, amounts);
+
+        // do a transfer if total > 0
+        if (total.signum() == 1) {
+            secureCall(caller, total, new byte[0], Blockchain.getRemainingEnergy());
+        }
+
+        return total;
+    }
+
+    /**
+     * Settles the rewards of a delegator in a pool and updates the storage. The rewards are not transferred.
+     *
+     * @return the amount of rewards withdrawn
+     */
+    private static BigInteger settleWithdrawal(Address pool, Address delegator, PoolStorageObjects.PoolRewards poolRewards) {
         PoolRewardsStateMachine stateMachine = new PoolRewardsStateMachine(poolRewards);
         detectBlockRewards(stateMachine);
 
-        PoolStorageObjects.DelegatorInfo delegatorInfo = PoolRegistryStorage.getDelegator(pool, caller);
+        PoolStorageObjects.DelegatorInfo delegatorInfo = PoolRegistryStorage.getDelegator(pool, delegator);
         // query withdraw amount from rewards state machine
         BigInteger amount = stateMachine.onWithdraw(delegatorInfo, Blockchain.getBlockNumber());
-        if (caller.equals(pool)) {
+        if (delegator.equals(pool)) {
             amount = amount.add(stateMachine.onWithdrawOperator());
         }
 
         // remove the delegator from storage if the stake is zero and all the rewards have been withdrawn
-        if(delegatorInfo.stake.equals(BigInteger.ZERO)) {
-            delegatorInfo = null;
+        if (!delegatorInfo.stake.equals(BigInteger.ZERO)) {
+            PoolRegistryStorage.putDelegator(pool, delegator, delegatorInfo);
+        } else if (delegatorInfo.isStored) {
+            PoolRegistryStorage.removeDelegator(pool, delegator, delegatorInfo);
         }
-
-        PoolRegistryStorage.putDelegator(pool, caller, delegatorInfo);
+        ensureLiquidity(stateMachine.currentPoolRewards);
         PoolRegistryStorage.putPoolRewards(pool, stateMachine.currentPoolRewards);
 
-        PoolRegistryEvents.withdrew(caller, pool, amount);
-
-        // do a transfer if amount > 0
-        if (amount.signum() == 1) {
-            secureCall(caller, amount, new byte[0], Blockchain.getRemainingEnergy());
-        }
-
         return amount;
     }
 
@@ -505,7 +770,7 @@ public class PoolRegistry {
         requireNoValue();
 
         PoolRewardsStateMachine stateMachine = new PoolRewardsStateMachine(rewards);
-        detectBlockRewards(stateMachine);
+        boolean hasBlockRewards = detectBlockRewards(stateMachine);
 
         int feePercentage = PoolRegistryStorage.getAutoDelegationFee(pool, delegator);
         // check auto-redelegation authorization, -1 indicates it was not found in storage
@@ -520,15 +785,117 @@ public class PoolRegistry {
 
         // amount > 0
         if (amount.signum() == 1) {
-            // rounded down
-            BigInteger fee = (amount.multiply(BigInteger.valueOf(feePercentage))).divide(BigInteger.valueOf(1000000));
+            BigInteger fee = calculateAutoDelegationFee(amount, feePercentage);
             assert fee.compareTo(amount) <= 0;
             BigInteger remaining = amount.subtract(fee);
 
+            ensureLiquidity(stateMachine.currentPoolRewards);
             delegate(delegator, pool, remaining, true, stateMachine, delegatorInfo);
 
             // transfer fee to the caller
             secureCall(Blockchain.getCaller(), fee, new byte[0], Blockchain.getRemainingEnergy());
+        } else if (hasBlockRewards) {
+            // the detected block rewards have been credited to the pool
+            PoolRegistryStorage.putPoolRewards(pool, stateMachine.currentPoolRewards);
+        }
+    }
+
+    /**
+     * Delegates the block rewards of multiple delegators to the pool. The block rewards are detected once,
+     * the total amount is bonded in one call to the StakerRegistry, and the caller gets the sum of the auto-redelegation fees.
+     * Delegators who have not enabled auto-redelegation on the pool are skipped, as are delegators whose rewards would put
+     * the pool over its capacity (or who would delegate to a broken pool). The rewards of skipped delegators are not withdrawn.
+     *
+     * @param pool the pool address
+     * @param delegators the delegator addresses
+     */
+    @Callable
+    public static void autoDelegateRewardsBatch(Address pool, Address[] delegators) {
+        PoolStorageObjects.PoolRewards rewards = validateAndGetPoolRewards(pool);
+        requireNonNull(delegators);
+        requireNoValue();
+
+        PoolRewardsStateMachine stateMachine = new PoolRewardsStateMachine(rewards);
+        detectBlockRewards(stateMachine);
+
+        long blockNumber = Blockchain.getBlockNumber();
+        BigInteger totalDelegation = BigInteger.ZERO;
+        BigInteger totalFee = BigInteger.ZERO;
+        BigInteger poolSelfStake = getSelfStake(pool);
+        BigInteger remainingCapacity = getRemainingCapacity(poolSelfStake, rewards.accumulatedStake, rewards.pendingStake);
+        boolean isOperatorIncluded = false;
+
+        for (Address delegator : delegators) {
+            requireNonNull(delegator);
+
+            int feePercentage = PoolRegistryStorage.getAutoDelegationFee(pool, delegator);
+            // -1 indicates auto-redelegation was not enabled by the delegator
+            if (feePercentage < 0) {
+                continue;
+            }
+
+            PoolStorageObjects.DelegatorInfo delegatorInfo = PoolRegistryStorage.getDelegator(pool, delegator);
+            // delegators should not be able to put the pool into a broken state by delegating an amount over the capacity,
+            // or delegate to a pool in broken state. Such delegators are skipped before their rewards are withdrawn.
+            // The rewards of a delegator are part of the pool's outstanding and accumulated block rewards,
+            // so the exact amount is only computed when the pool is close to its capacity.
+            if (!delegator.equals(pool) && rewards.outstandingRewards.add(rewards.accumulatedBlockRewards).compareTo(remainingCapacity) > 0) {
+                BigInteger withdrawable = stateMachine.getWithdrawableRewards(delegatorInfo, blockNumber);
+                BigInteger remaining = withdrawable.subtract(calculateAutoDelegationFee(withdrawable, feePercentage));
+                if (remaining.compareTo(remainingCapacity) > 0) {
+                    continue;
+                }
+            }
+
+            // do a withdraw
+            BigInteger amount = stateMachine.onWithdraw(delegatorInfo, blockNumber);
+            if (delegator.equals(pool)) {
+                amount = amount.add(stateMachine.onWithdrawOperator());
+            }
+
+            // amount > 0
+            if (amount.signum() == 1) {
+                BigInteger fee = calculateAutoDelegationFee(amount, feePercentage);
+                assert fee.compareTo(amount) <= 0;
+                BigInteger remaining = amount.subtract(fee);
+
+                // remaining > 0
+                if (remaining.signum() == 1) {
+                    stateMachine.onDelegate(delegatorInfo, blockNumber, remaining);
+                    totalDelegation = totalDelegation.add(remaining);
+                    if (delegator.equals(pool)) {
+                        isOperatorIncluded = true;
+                        poolSelfStake = delegatorInfo.stake;
+                        remainingCapacity = getRemainingCapacity(poolSelfStake, rewards.accumulatedStake, rewards.pendingStake);
+                    } else {
+                        remainingCapacity = remainingCapacity.subtract(remaining);
+                    }
+                    PoolRegistryEvents.delegated(delegator, pool, remaining);
+                }
+                totalFee = totalFee.add(fee);
+
+                PoolRegistryStorage.putDelegator(pool, delegator, delegatorInfo);
+            }
+        }
+
+        ensureLiquidity(rewards);
+        // totalDelegation > 0
+        if (totalDelegation.signum() == 1) {
+            bondInStakerRegistry(pool, totalDelegation);
+
+            // if the pool was broken and delegation is from the pool operator, it might go into an active state
+            // pending stake will not be considered towards total stake, until it's finalized
+            if (isOperatorIncluded && !rewards.isActive && isSelfStakeSatisfied(poolSelfStake, rewards.accumulatedStake, BigInteger.ZERO)) {
+                rewards.isActive = true;
+                setStateInStakerRegistry(pool, true);
+            }
+        }
+
+        PoolRegistryStorage.putPoolRewards(pool, rewards);
+
+        // transfer the sum of the fees to the caller
+        if (totalFee.signum() == 1) {
+            secureCall(Blockchain.getCaller(), totalFee, new byte[0], Blockchain.getRemainingEnergy());
         }
     }
 
@@ -617,6 +984,67 @@ public class PoolRegistry {
         secureCall(STAKER_REGISTRY, BigInteger.ZERO, data, Blockchain.getRemainingEnergy());
     }
 
+    /**
+     * Transfers the coinbase balances of multiple pools and distributes their block rewards to the delegators, regardless of the sweep policy
+     * of each pool. This moves the work of settling block rewards out of the next calls to the pools.
+     *
+     * @param pools the pool addresses
+     * @return the total amount transferred from the coinbase addresses
+     */
+    @Callable
+    public static BigInteger sweepPools(Address[] pools) {
+        requireNonNull(pools);
+        requireNoValue();
+
+        BigInteger total = BigInteger.ZERO;
+        for (Address pool : pools) {
+            PoolStorageObjects.PoolRewards poolRewards = validateAndGetPoolRewards(pool);
+            PoolRewardsStateMachine stateMachine = new PoolRewardsStateMachine(poolRewards);
+            boolean isUpdated = false;
+
+            BigInteger balance = Blockchain.getBalance(poolRewards.coinbaseAddress);
+            // balance > 0
+            if (balance.signum() == 1) {
+                creditBlockRewards(stateMachine, balance);
+                sweepBlockRewards(poolRewards);
+                total = total.add(balance);
+                isUpdated = true;
+            }
+            // accumulatedBlockRewards > 0
+            if (poolRewards.accumulatedBlockRewards.signum() == 1) {
+                stateMachine.onSweep();
+                isUpdated = true;
+            }
+
+            if (isUpdated) {
+                PoolRegistryStorage.putPoolRewards(pool, poolRewards);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sets the policy for transferring block rewards from the coinbase address of the pool. Owner only.
+     * Block rewards are credited to the pool as soon as they are detected, but the coinbase balance is only transferred to the
+     * PoolRegistry once it reaches the threshold, the interval has passed since the last transfer, or it is needed to pay out rewards.
+     *
+     * @param threshold the coinbase balance that triggers a transfer, zero to transfer on every detection
+     * @param interval  the number of blocks between transfers, zero to only use the threshold
+     */
+    @Callable
+    public static void setSweepPolicy(BigInteger threshold, long interval) {
+        requireNoValue();
+        Address pool = Blockchain.getCaller();
+        PoolStorageObjects.PoolRewards poolRewards = validateAndGetPoolRewards(pool);
+        require(threshold != null && threshold.signum() >= 0 && interval >= 0);
+
+        poolRewards.sweepThreshold = threshold;
+        poolRewards.sweepInterval = interval;
+        PoolRegistryStorage.putPoolRewards(pool, poolRewards);
+
+        PoolRegistryEvents.updatedSweepPolicy(pool, threshold, interval);
+    }
+
     /**
      * Returns the outstanding rewards of a delegator.
      *
@@ -630,13 +1058,37 @@ public class PoolRegistry {
         requireNonNull(delegator);
         requireNoValue();
 
+        return calculateRewards(pool, delegator, poolRewards);
+    }
+
+    /**
+     * Returns the outstanding rewards of a delegator in multiple pools.
+     *
+     * @param delegator the delegator address
+     * @param pools     the pool addresses
+     * @return the amount of outstanding rewards in each pool
+     */
+    @Callable
+    public static BigInteger[] getRewardsForPools(Address delegator, Address[] pools) {
+        requireNonNull(delegator);
+        requireNonNull(pools);
+        requireNoValue();
+
+        BigInteger[] rewards = new BigInteger[pools.length];
+        for (int i = 0; i < pools.length; i++) {
+            rewards[i] = calculateRewards(pools[i], delegator, validateAndGetPoolRewards(pools[i]));
+        }
+        return rewards;
+    }
+
+    private static BigInteger calculateRewards(Address pool, Address delegator, PoolStorageObjects.PoolRewards poolRewards) {
         PoolRewardsStateMachine stateMachine = new PoolRewardsStateMachine(poolRewards);
 
         // update block rewards without transferring the balance
-        BigInteger balance = Blockchain.getBalance(poolRewards.coinbaseAddress);
+        BigInteger newBlockRewards = Blockchain.getBalance(poolRewards.coinbaseAddress).subtract(poolRewards.unsweptBlockRewards);
 
-        if (balance.signum() == 1) {
-            stateMachine.onBlock(Blockchain.getBlockNumber(), balance);
+        if (newBlockRewards.signum() == 1) {
+            stateMachine.onBlock(Blockchain.getBlockNumber(), newBlockRewards);
         }
         PoolStorageObjects.DelegatorInfo delegatorInfo = PoolRegistryStorage.getDelegator(pool, delegator);
         // query withdraw amount from rewards state machine.
@@ -665,6 +1117,70 @@ public class PoolRegistry {
         return PoolRegistryStorage.getDelegator(pool, delegator).stake;
     }
 
+    /**
+     * Returns a page of the delegators of a pool, which are the addresses that have stake or rewards in the pool.
+     * The order is not defined and changes when delegators leave, thus a page can miss or repeat delegators that joined or left after the previous page.
+     * A delegation stored before the list was introduced is only listed once it is updated by an operation of the delegator or of the pool.
+     *
+     * @param pool   the pool address
+     * @param cursor the position of the first delegator, 0 for the first page
+     * @param limit  the maximum number of delegators
+     * @return the delegators, fewer than limit when the end is reached. The cursor of the next page is cursor + length
+     */
+    @Callable
+    public static Address[] getDelegators(Address pool, int cursor, int limit) {
+        requirePool(pool);
+        require(cursor >= 0 && limit > 0);
+        requireNoValue();
+
+        return PoolRegistryStorage.getDelegators(pool, cursor, limit);
+    }
+
+    /**
+     * Returns a page of the registered pools, in order of registration. Pools are never removed from the list, so paging is stable.
+     *
+     * @param cursor     the position of the first pool to check, 0 for the first page
+     * @param limit      the number of positions to check, the cursor of the next page is cursor + limit
+     * @param onlyActive if true, only the pools in active state are returned
+     * @return ABI encoded values: the number of registered pools (int), the pool addresses (Address[]) and their active states (boolean[])
+     */
+    @Callable
+    public static byte[] getPools(int cursor, int limit, boolean onlyActive) {
+        require(cursor >= 0 && limit > 0);
+        requireNoValue();
+
+        int count = PoolRegistryStorage.getPoolCount();
+        int end = count - cursor > limit ? cursor + limit : count;
+        Address[] pools = new Address[end > cursor ? end - cursor : 0];
+        boolean[] isActive = new boolean[pools.length];
+        int length = 0;
+        for (int i = cursor; i < end; i++) {
+            Address pool = PoolRegistryStorage.getPool(i);
+            boolean active = PoolRegistryStorage.getPoolRewards(pool).isActive;
+            if (active || !onlyActive) {
+                pools[length] = pool;
+                isActive[length] = active;
+                length++;
+            }
+        }
+        if (length < pools.length) {
+            Address[] matchingPools = new Address[length];
+            boolean[] matchingIsActive = new boolean[length];
+            System.arraycopy(pools, 0, matchingPools, 0, length);
+            System.arraycopy(isActive, 0, matchingIsActive, 0, length);
+            pools = matchingPools;
+            isActive = matchingIsActive;
+        }
+
+        // int + Address[] (token, element token, length, addresses) + boolean[] (token, length, values)
+        byte[] result = new byte[(1 + Integer.BYTES) + (1 + 1 + Short.BYTES + length * getAddressSize()) + (1 + Short.BYTES + length)];
+        new ABIStreamingEncoder(result)
+                .encodeOneInteger(count)
+                .encodeOneAddressArray(pools)
+                .encodeOneBooleanArray(isActive);
+        return result;
+    }
+
     /**
      * Returns the total stake of a pool.
      *
@@ -701,6 +1217,49 @@ public class PoolRegistry {
         return info;
     }
 
+    /**
+     * Returns the information of multiple pools in one call.
+     *
+     * @param pools the pool addresses
+     * @return for each pool in order, the ABI encoded coinbase address (Address), commission rate (int), whether the self stake is satisfied (boolean),
+     * total stake (BigInteger), pending stake (BigInteger), metadata content hash (byte[]) and metadata url (byte[])
+     */
+    @Callable
+    public static byte[] getPoolInfos(Address[] pools) {
+        requireNonNull(pools);
+        requireNoValue();
+
+        PoolStorageObjects.PoolRewards[] rewards = new PoolStorageObjects.PoolRewards[pools.length];
+        boolean[] isSelfStakeSatisfied = new boolean[pools.length];
+        byte[][] metadata = new byte[pools.length][];
+        int size = 0;
+        for (int i = 0; i < pools.length; i++) {
+            rewards[i] = validateAndGetPoolRewards(pools[i]);
+            isSelfStakeSatisfied[i] = isSelfStakeSatisfied(getSelfStake(pools[i]), rewards[i].accumulatedStake, BigInteger.ZERO);
+            metadata[i] = PoolRegistryStorage.getPoolMetaData(pools[i]);
+            // byte[] encoded length = (byte) token + (short) length + array length
+            size += getAddressSize() + (1 + Integer.BYTES) + (1 + 1) + getEncodedSize(rewards[i].accumulatedStake) + getEncodedSize(rewards[i].pendingStake)
+                    + (1 + Short.BYTES) * 2 + metadata[i].length;
+        }
+
+        byte[] infos = new byte[size];
+        ABIStreamingEncoder encoder = new ABIStreamingEncoder(infos);
+        for (int i = 0; i < pools.length; i++) {
+            byte[] metaDataHash = new byte[32];
+            byte[] metaDataUrl = new byte[metadata[i].length - 32];
+            System.arraycopy(metadata[i], 0, metaDataHash, 0, 32);
+            System.arraycopy(metadata[i], 32, metaDataUrl, 0, metaDataUrl.length);
+            encoder.encodeOneAddress(rewards[i].coinbaseAddress)
+                    .encodeOneInteger(rewards[i].commissionRate)
+                    .encodeOneBoolean(isSelfStakeSatisfied[i])
+                    .encodeOneBigInteger(rewards[i].accumulatedStake)
+                    .encodeOneBigInteger(rewards[i].pendingStake)
+                    .encodeOneByteArray(metaDataHash)
+                    .encodeOneByteArray(metaDataUrl);
+        }
+        return infos;
+    }
+
     @Callable
     public static BigInteger getOutstandingRewards(Address pool){
         PoolStorageObjects.PoolRewards poolRewards = validateAndGetPoolRewards(pool);
@@ -731,14 +1290,78 @@ public class PoolRegistry {
 
     @Fallback
     public static void fallback(){
+        byte[] data = Blockchain.getData();
+        if (data != null && data.length > PoolRegistryCommands.HEADER_LENGTH &&
+                data[0] == PoolRegistryCommands.PREFIX_NULL && data[1] == PoolRegistryCommands.PREFIX_STRING) {
+            executeCommand(data);
+            return;
+        }
+
         Address caller = Blockchain.getCaller();
-        if(!caller.equals(reentrantPoolCoinbaseAddress) && !caller.equals(STAKER_REGISTRY)) {
+        if(!caller.equals(reentrantPoolCoinbaseAddress)) {
             Blockchain.revert();
         }
         assert reentrantValueTransferAmount == null;
         reentrantValueTransferAmount = Blockchain.getValue();
     }
 
+    // see PoolRegistryCommands for the format, each command calls the corresponding callable
+    private static void executeCommand(byte[] data) {
+        int argumentLength = data.length - PoolRegistryCommands.HEADER_LENGTH;
+        switch (data[2]) {
+            case PoolRegistryCommands.DELEGATE:
+                require(argumentLength == Address.LENGTH);
+                delegate(readAddress(data));
+                break;
+            case PoolRegistryCommands.WITHDRAW_REWARDS:
+                require(argumentLength == Address.LENGTH);
+                withdrawRewards(readAddress(data));
+                break;
+            case PoolRegistryCommands.REDELEGATE_REWARDS:
+                require(argumentLength == Address.LENGTH);
+                redelegateRewards(readAddress(data));
+                break;
+            case PoolRegistryCommands.FINALIZE_UNDELEGATE:
+                require(argumentLength == Long.BYTES);
+                finalizeUndelegate(readLong(data));
+                break;
+            case PoolRegistryCommands.FINALIZE_TRANSFER:
+                require(argumentLength == Long.BYTES);
+                finalizeTransfer(readLong(data));
+                break;
+            default:
+                Blockchain.revert();
+        }
+    }
+
+    private static Address readAddress(byte[] data) {
+        byte[] address = new byte[Address.LENGTH];
+        System.arraycopy(data, PoolRegistryCommands.HEADER_LENGTH, address, 0, Address.LENGTH);
+        return new Address(address);
+    }
+
+    private static long readLong(byte[] data) {
+        long value = 0;
+        for (int i = PoolRegistryCommands.HEADER_LENGTH; i < data.length; i++) {
+            value = (value << 8) | (data[i] & 0xFF);
+        }
+        return value;
+    }
+
+    // the stake that can be delegated to the pool while keeping isSelfStakeSatisfied, negative if it is not satisfied
+    private static BigInteger getRemainingCapacity(BigInteger selfStake, BigInteger currentTotalStake, BigInteger pendingStake) {
+        if (selfStake.compareTo(MIN_SELF_STAKE) < 0) {
+            return BigInteger.ONE.negate();
+        }
+        // without a percentage requirement the capacity is only bounded by the stake that can exist (below 2^128 nAmp)
+        if (MIN_SELF_STAKE_PERCENTAGE.signum() <= 0) {
+            return BigInteger.ONE.shiftLeft(128);
+        }
+        // selfStake * 100 / totalStake >= MIN_SELF_STAKE_PERCENTAGE holds as long as totalStake <= selfStake * 100 / MIN_SELF_STAKE_PERCENTAGE
+        BigInteger capacity = selfStake.multiply(BigInteger.valueOf(100)).divide(MIN_SELF_STAKE_PERCENTAGE);
+        return capacity.subtract(currentTotalStake).subtract(pendingStake);
+    }
+
     private static BigInteger getSelfStake(Address pool){
         return PoolRegistryStorage.getDelegator(pool, pool).stake;
     }
@@ -750,6 +1373,16 @@ public class PoolRegistry {
                 (selfStake.multiply(BigInteger.valueOf(100))).divide(totalStake).compareTo(MIN_SELF_STAKE_PERCENTAGE) >= 0;
     }
 
+    private static void bondInStakerRegistry(Address pool, BigInteger value) {
+        String methodName = "bond";
+        // encoded data is directly written to the byte array to reduce energy usage
+        byte[] data = new byte[getStringSize(methodName) + getAddressSize()];
+        new ABIStreamingEncoder(data)
+                .encodeOneString(methodName)
+                .encodeOneAddress(pool);
+        secureCall(STAKER_REGISTRY, value, data, Blockchain.getRemainingEnergy());
+    }
+
     private static void setStateInStakerRegistry(Address pool, boolean state) {
         String methodName = "setState";
         byte[] txData = new byte[getStringSize(methodName) + getAddressSize() + (1 + 1)];
@@ -800,30 +1433,79 @@ public class PoolRegistry {
         return result;
     }
 
-    private static void detectBlockRewards(PoolRewardsStateMachine rewardsStateMachine) {
+    /**
+     * Credits the block rewards sent to the coinbase address since the last detection to the pool, and transfers the coinbase balance
+     * to the PoolRegistry if the sweep policy of the pool is met.
+     *
+     * @return true if the pool rewards were updated
+     */
+    private static boolean detectBlockRewards(PoolRewardsStateMachine rewardsStateMachine) {
+        PoolStorageObjects.PoolRewards poolRewards = rewardsStateMachine.currentPoolRewards;
+        BigInteger balance = Blockchain.getBalance(poolRewards.coinbaseAddress);
+        // balance > 0
+        if (balance.signum() != 1) {
+            return false;
+        }
+
+        boolean isUpdated = creditBlockRewards(rewardsStateMachine, balance);
+        if (balance.compareTo(poolRewards.sweepThreshold) >= 0 ||
+                (poolRewards.sweepInterval > 0 && Blockchain.getBlockNumber() - poolRewards.lastSweepBlockNumber >= poolRewards.sweepInterval)) {
+            sweepBlockRewards(poolRewards);
+            isUpdated = true;
+        }
+        return isUpdated;
+    }
+
+    /**
+     * @return true if the coinbase balance contains block rewards that were not credited yet
+     */
+    private static boolean creditBlockRewards(PoolRewardsStateMachine rewardsStateMachine, BigInteger balance) {
+        PoolStorageObjects.PoolRewards poolRewards = rewardsStateMachine.currentPoolRewards;
+        // only the PoolRegistry can transfer value out of the coinbase address, so the balance never drops below the credited amount
+        BigInteger newBlockRewards = balance.subtract(poolRewards.unsweptBlockRewards);
+        // newBlockRewards > 0
+        if (newBlockRewards.signum() == 1) {
+            rewardsStateMachine.onBlock(Blockchain.getBlockNumber(), newBlockRewards);
+            poolRewards.unsweptBlockRewards = balance;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Transfers the coinbase balance if the PoolRegistry does not hold enough of the pool's rewards to pay out the amounts that were
+     * just withdrawn from the state machine. The PoolRegistry holds outstandingRewards + accumulatedBlockRewards - unsweptBlockRewards for the pool.
+     */
+    private static void ensureLiquidity(PoolStorageObjects.PoolRewards poolRewards) {
+        if (poolRewards.unsweptBlockRewards.compareTo(poolRewards.outstandingRewards.add(poolRewards.accumulatedBlockRewards)) > 0) {
+            sweepBlockRewards(poolRewards);
+        }
+    }
+
+    private static void sweepBlockRewards(PoolStorageObjects.PoolRewards poolRewards) {
         // This address represents the coinbase contract that was deployed by the PoolRegistry.
         // PoolRegistry stores the contract bytecode and deploys it for each new pool, and thus this a trusted contract.
         // Pool operators are unable to deploy their own custom contract or change their coinbase address.
-        Address coinbaseAddress = rewardsStateMachine.currentPoolRewards.coinbaseAddress;
-        BigInteger balance = Blockchain.getBalance(coinbaseAddress);
-        // balance > 0
-        if (balance.signum() == 1) {
-            String methodName = "transfer";
-            // encoded data is directly written to the byte array to reduce energy usage
-            byte[] data = new byte[getStringSize(methodName) + getBigIntegerSize()];
-            new ABIStreamingEncoder(data)
-                    .encodeOneString(methodName)
-                    .encodeOneBigInteger(balance);
+        Address coinbaseAddress = poolRewards.coinbaseAddress;
+        // the whole balance has been credited by detectBlockRewards
+        BigInteger amount = poolRewards.unsweptBlockRewards;
 
-            // pool's coinbase address is stored for the re-entrant call to ensure only coinbase addresses can transfer value to the PoolRegistry
-            reentrantPoolCoinbaseAddress = coinbaseAddress;
-            secureCall(coinbaseAddress, BigInteger.ZERO, data, Blockchain.getRemainingEnergy());
-            assert (reentrantValueTransferAmount.equals(balance));
-            reentrantPoolCoinbaseAddress = null;
-            reentrantValueTransferAmount = null;
+        String methodName = "transfer";
+        // encoded data is directly written to the byte array to reduce energy usage
+        byte[] data = new byte[getStringSize(methodName) + getBigIntegerSize()];
+        new ABIStreamingEncoder(data)
+                .encodeOneString(methodName)
+                .encodeOneBigInteger(amount);
 
-            rewardsStateMachine.onBlock(Blockchain.getBlockNumber(), balance);
-        }
+        // pool's coinbase address is stored for the re-entrant call to ensure only coinbase addresses can transfer value to the PoolRegistry
+        reentrantPoolCoinbaseAddress = coinbaseAddress;
+        secureCall(coinbaseAddress, BigInteger.ZERO, data, Blockchain.getRemainingEnergy());
+        assert (reentrantValueTransferAmount.equals(amount));
+        reentrantPoolCoinbaseAddress = null;
+        reentrantValueTransferAmount = null;
+
+        poolRewards.unsweptBlockRewards = BigInteger.ZERO;
+        poolRewards.lastSweepBlockNumber = Blockchain.getBlockNumber();
     }
 
     private static int getStringSize(String value){
@@ -836,6 +1518,16 @@ public class PoolRegistry {
         return 1 + 32;
     }
 
+    private static BigInteger calculateAutoDelegationFee(BigInteger amount, int feePercentage) {
+        // rounded down
+        return (amount.multiply(BigInteger.valueOf(feePercentage))).divide(BigInteger.valueOf(1000000));
+    }
+
+    private static int getEncodedSize(BigInteger value){
+        // (byte) token + (byte) length + value length
+        return 1 + 1 + value.toByteArray().length;
+    }
+
     private static int getBigIntegerSize(){
         // (byte) token + (byte) length + max BigInteger length
         return 1 + 1 + 32;
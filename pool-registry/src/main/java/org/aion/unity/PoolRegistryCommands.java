@@ -0,0 +1,78 @@
+package org.aion.unity;
+
+import avm.Address;
+
+/**
+ * Compact binary command format for the most frequent PoolRegistry operations.
+ *
+ * A command starts with the ABI encoding of a null method name, which makes the generated main method hand the call
+ * over to {@link PoolRegistry#fallback()} without matching it against the callables. The prefix is followed by a
+ * one-byte opcode and the fixed-width arguments of the operation:
+ * <pre>
+ *  DELEGATE             0x32 0x21 0x01 pool (32 bytes)
+ *  WITHDRAW_REWARDS     0x32 0x21 0x02 pool (32 bytes)
+ *  REDELEGATE_REWARDS   0x32 0x21 0x03 pool (32 bytes)
+ *  FINALIZE_UNDELEGATE  0x32 0x21 0x04 id (8 bytes, big-endian)
+ *  FINALIZE_TRANSFER    0x32 0x21 0x05 id (8 bytes, big-endian)
+ * </pre>
+ * A command has the same semantics as the corresponding callable, except that no return data is produced. The amount
+ * of a withdrawal is available from the ADSWithdrew event.
+ *
+ * The encode methods are meant for clients building the transaction data, the contract only uses the constants.
+ */
+public class PoolRegistryCommands {
+
+    // ABI tokens of a null String, see org.aion.avm.userlib.abi.ABIToken
+    static final byte PREFIX_NULL = 0x32;
+    static final byte PREFIX_STRING = 0x21;
+    static final int HEADER_LENGTH = 3;
+
+    static final byte DELEGATE = 0x01;
+    static final byte WITHDRAW_REWARDS = 0x02;
+    static final byte REDELEGATE_REWARDS = 0x03;
+    static final byte FINALIZE_UNDELEGATE = 0x04;
+    static final byte FINALIZE_TRANSFER = 0x05;
+
+    public static byte[] delegate(Address pool) {
+        return encodeAddressCommand(DELEGATE, pool);
+    }
+
+    public static byte[] withdrawRewards(Address pool) {
+        return encodeAddressCommand(WITHDRAW_REWARDS, pool);
+    }
+
+    public static byte[] redelegateRewards(Address pool) {
+        return encodeAddressCommand(REDELEGATE_REWARDS, pool);
+    }
+
+    public static byte[] finalizeUndelegate(long id) {
+        return encodeLongCommand(FINALIZE_UNDELEGATE, id);
+    }
+
+    public static byte[] finalizeTransfer(long id) {
+        return encodeLongCommand(FINALIZE_TRANSFER, id);
+    }
+
+    private static byte[] encodeAddressCommand(byte opcode, Address address) {
+        byte[] command = newCommand(opcode, Address.LENGTH);
+        System.arraycopy(address.toByteArray(), 0, command, HEADER_LENGTH, Address.LENGTH);
+        return command;
+    }
+
+    private static byte[] encodeLongCommand(byte opcode, long value) {
+        byte[] command = newCommand(opcode, Long.BYTES);
+        for (int i = command.length - 1; i >= HEADER_LENGTH; i--) {
+            command[i] = (byte) value;
+            value >>= 8;
+        }
+        return command;
+    }
+
+    private static byte[] newCommand(byte opcode, int argumentLength) {
+        byte[] command = new byte[HEADER_LENGTH + argumentLength];
+        command[0] = PREFIX_NULL;
+        command[1] = PREFIX_STRING;
+        command[2] = opcode;
+        return command;
+    }
+}
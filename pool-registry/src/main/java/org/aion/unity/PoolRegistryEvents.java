@@ -54,6 +54,20 @@ public class PoolRegistryEvents {
                 amount.toByteArray());
     }
 
+    protected static void withdrewFromPools(Address caller, Address[] pools, BigInteger[] amounts) {
+        // Address[] = (byte) token + (byte) element token + (short) length + (byte) token and address per pool
+        // BigInteger[] = (byte) token + (byte) element token + (short) length + (byte) token, (byte) length and value per amount
+        int length = (1 + 1 + Short.BYTES) * 2 + (1 + Address.LENGTH) * pools.length;
+        for (BigInteger amount : amounts) {
+            length += 1 + 1 + amount.toByteArray().length;
+        }
+        byte[] data = new byte[length];
+        new ABIStreamingEncoder(data).encodeOneAddressArray(pools).encodeOneBigIntegerArray(amounts);
+        Blockchain.log("ADSWithdrewFromPools".getBytes(),
+                caller.toByteArray(),
+                data);
+    }
+
     protected static void enabledAutoRewardsDelegation(Address caller, Address pool, int feePercentage) {
         Blockchain.log("ADSAutoRewardsDelegationEnabled".getBytes(),
                 caller.toByteArray(),
@@ -81,6 +95,13 @@ public class PoolRegistryEvents {
                 newMetaDataUrl);
     }
 
+    protected static void updatedSweepPolicy(Address pool, BigInteger threshold, long interval) {
+        Blockchain.log("ADSSweepPolicyUpdated".getBytes(),
+                pool.toByteArray(),
+                threshold.toByteArray(),
+                BigInteger.valueOf(interval).toByteArray());
+    }
+
     protected static void finalizedCommissionRateChange(long id) {
         Blockchain.log("ADSCommissionRateChangeFinalized".getBytes(),
                 BigInteger.valueOf(id).toByteArray());
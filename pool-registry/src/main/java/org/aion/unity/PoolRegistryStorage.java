@@ -9,26 +9,52 @@ import java.math.BigInteger;
 public class PoolRegistryStorage {
 
     private enum StorageSlots {
-        DELEGATION, // pool address, delegator address -> stake, settledRewards, crr, starting period block number
+        DELEGATION, // pool address, delegator address -> stake, settledRewards, crr, starting period block number, position in the pool's delegator list
         AUTO_REWARDS_DELEGATION, //pool address, auto delegator -> fee
         POOL_META_DATA, // pool address -> metadata content hash, metadata url
         POOL_REWARDS, // pool address -> coinbase address, fee, crr, outstanding rewards, total stake, accumulated block rewards, isActive, pendingStake
         PENDING_COMMISSION_RATE, // commission rate change id -> pool address, new commission rate, block number
         PENDING_TRANSFER, // transfer id -> initiator, from pool, to pool, amount
-        COINBASE_CONTRACT // -> coinbase contract bytes
+        COINBASE_CONTRACT, // -> coinbase contract bytes
+        DELEGATOR_COUNT, // pool address -> number of delegators in the pool's delegator list
+        DELEGATOR_LIST, // pool address, position -> delegator address
+        POOL_COUNT, // -> number of registered pools
+        POOL_LIST, // position -> pool address, in order of registration
+        TRANSFER_QUEUE, // initiator address -> head, tail, head block number
+        TRANSFER_QUEUE_ENTRY // initiator address, position -> transfer id, block number
     }
 
     /**
-     * Puts delegator info into storage
+     * Puts delegator info into storage. A delegator is added to the pool's delegator list when its info is first stored,
+     * or when a record stored in the legacy layout, which has no list position, is written again.
      *
      * @param pool          pool address
      * @param delegator     delegator address
-     * @param delegatorInfo information to store. null value will remove the delegator info
+     * @param delegatorInfo information to store, not null
      */
     protected static void putDelegator(Address pool, Address delegator, PoolStorageObjects.DelegatorInfo delegatorInfo) {
+        if (!delegatorInfo.isStored || delegatorInfo.position < 0) {
+            delegatorInfo.position = addToDelegatorList(pool, delegator);
+            delegatorInfo.isStored = true;
+        }
         byte[] key = getKey(StorageSlots.DELEGATION, concatAddresses(pool.toByteArray(), delegator.toByteArray()));
-        byte[] value = delegatorInfo == null ? null : delegatorInfo.serialize();
-        Blockchain.putStorage(key, value);
+        Blockchain.putStorage(key, delegatorInfo.serialize());
+    }
+
+    /**
+     * Removes delegator info from storage, and the delegator from the pool's delegator list
+     *
+     * @param pool          pool address
+     * @param delegator     delegator address
+     * @param delegatorInfo the stored delegator info
+     */
+    protected static void removeDelegator(Address pool, Address delegator, PoolStorageObjects.DelegatorInfo delegatorInfo) {
+        if (delegatorInfo.position >= 0) {
+            removeFromDelegatorList(pool, delegatorInfo.position);
+        }
+        byte[] key = getKey(StorageSlots.DELEGATION, concatAddresses(pool.toByteArray(), delegator.toByteArray()));
+        Blockchain.putStorage(key, null);
+        delegatorInfo.isStored = false;
     }
 
     /**
@@ -45,6 +71,75 @@ public class PoolRegistryStorage {
         return value == null ? new PoolStorageObjects.DelegatorInfo() : PoolStorageObjects.DelegatorInfo.from(value);
     }
 
+    /**
+     * Retrieves a page of the pool's delegator list. The list is not ordered, and removing a delegator moves the last delegator in the list
+     * to its position, so a delegator removed or added while paging might be missed or returned twice.
+     *
+     * @param pool   pool address
+     * @param cursor position of the first delegator to return
+     * @param limit  maximum number of delegators to return
+     * @return the delegators from the cursor position, fewer than limit if the end of the list is reached
+     */
+    protected static Address[] getDelegators(Address pool, int cursor, int limit) {
+        int length = getDelegatorCount(pool) - cursor;
+        if (length > limit) {
+            length = limit;
+        } else if (length < 0) {
+            length = 0;
+        }
+        Address[] delegators = new Address[length];
+        for (int i = 0; i < length; i++) {
+            delegators[i] = new Address(Blockchain.getStorage(getDelegatorListKey(pool, cursor + i)));
+        }
+        return delegators;
+    }
+
+    /**
+     * Retrieves the number of delegators in the pool's delegator list
+     *
+     * @param pool pool address
+     * @return the number of delegators which have delegator info stored
+     */
+    protected static int getDelegatorCount(Address pool) {
+        byte[] value = Blockchain.getStorage(getKey(StorageSlots.DELEGATOR_COUNT, pool.toByteArray()));
+        return value == null ? 0 : new BigInteger(value).intValueExact();
+    }
+
+    private static int addToDelegatorList(Address pool, Address delegator) {
+        int position = getDelegatorCount(pool);
+        Blockchain.putStorage(getDelegatorListKey(pool, position), delegator.toByteArray());
+        putDelegatorCount(pool, position + 1);
+        return position;
+    }
+
+    private static void removeFromDelegatorList(Address pool, int position) {
+        int last = getDelegatorCount(pool) - 1;
+        // move the last delegator to the removed position
+        if (position != last) {
+            byte[] lastDelegator = Blockchain.getStorage(getDelegatorListKey(pool, last));
+            Blockchain.putStorage(getDelegatorListKey(pool, position), lastDelegator);
+
+            byte[] key = getKey(StorageSlots.DELEGATION, concatAddresses(pool.toByteArray(), lastDelegator));
+            PoolStorageObjects.DelegatorInfo lastDelegatorInfo = PoolStorageObjects.DelegatorInfo.from(Blockchain.getStorage(key));
+            lastDelegatorInfo.position = position;
+            Blockchain.putStorage(key, lastDelegatorInfo.serialize());
+        }
+        Blockchain.putStorage(getDelegatorListKey(pool, last), null);
+        putDelegatorCount(pool, last);
+    }
+
+    private static void putDelegatorCount(Address pool, int count) {
+        byte[] value = count == 0 ? null : BigInteger.valueOf(count).toByteArray();
+        Blockchain.putStorage(getKey(StorageSlots.DELEGATOR_COUNT, pool.toByteArray()), value);
+    }
+
+    private static byte[] getDelegatorListKey(Address pool, int position) {
+        AionBuffer buffer = AionBuffer.allocate(Address.LENGTH + Integer.BYTES);
+        buffer.putAddress(pool);
+        buffer.putInt(position);
+        return getKey(StorageSlots.DELEGATOR_LIST, buffer.getArray());
+    }
+
     /**
      * Puts pool's reward info into storage
      *
@@ -70,6 +165,37 @@ public class PoolRegistryStorage {
         return value == null ? null : PoolStorageObjects.PoolRewards.from(value);
     }
 
+    /**
+     * Adds a pool to the end of the pool list
+     *
+     * @param pool pool address
+     */
+    protected static void addPool(Address pool) {
+        int count = getPoolCount();
+        Blockchain.putStorage(getKey(StorageSlots.POOL_LIST, BigInteger.valueOf(count).toByteArray()), pool.toByteArray());
+        Blockchain.putStorage(getKey(StorageSlots.POOL_COUNT, new byte[0]), BigInteger.valueOf(count + 1).toByteArray());
+    }
+
+    /**
+     * Retrieves the number of registered pools
+     *
+     * @return the length of the pool list
+     */
+    protected static int getPoolCount() {
+        byte[] value = Blockchain.getStorage(getKey(StorageSlots.POOL_COUNT, new byte[0]));
+        return value == null ? 0 : new BigInteger(value).intValueExact();
+    }
+
+    /**
+     * Retrieves a pool from the pool list
+     *
+     * @param position position in the pool list, less than the pool count
+     * @return pool address
+     */
+    protected static Address getPool(int position) {
+        return new Address(Blockchain.getStorage(getKey(StorageSlots.POOL_LIST, BigInteger.valueOf(position).toByteArray())));
+    }
+
     /**
      * Puts pool metadata into storage
      *
@@ -120,6 +246,60 @@ public class PoolRegistryStorage {
         return value == null ? null : PoolStorageObjects.StakeTransfer.from(value);
     }
 
+    /**
+     * Puts the bounds of the initiator's pending transfer queue into storage
+     *
+     * @param initiator transfer initiator
+     * @param queue     queue bounds. null will remove the queue from storage.
+     */
+    protected static void putTransferQueue(Address initiator, PoolStorageObjects.TransferQueue queue) {
+        byte[] key = getKey(StorageSlots.TRANSFER_QUEUE, initiator.toByteArray());
+        byte[] value = (queue == null) ? null : queue.serialize();
+        Blockchain.putStorage(key, value);
+    }
+
+    /**
+     * Retrieves the bounds of the initiator's pending transfer queue from storage
+     *
+     * @param initiator transfer initiator
+     * @return TransferQueue if the initiator has pending transfers, null otherwise
+     */
+    protected static PoolStorageObjects.TransferQueue getTransferQueue(Address initiator) {
+        byte[] key = getKey(StorageSlots.TRANSFER_QUEUE, initiator.toByteArray());
+        byte[] value = Blockchain.getStorage(key);
+        return value == null ? null : PoolStorageObjects.TransferQueue.from(value);
+    }
+
+    /**
+     * Puts the transfer at a position of the initiator's pending transfer queue into storage
+     *
+     * @param initiator transfer initiator
+     * @param position  position in the queue
+     * @param transfer  queued transfer. null will remove the entry from storage.
+     */
+    protected static void putQueuedTransfer(Address initiator, long position, PoolStorageObjects.QueuedTransfer transfer) {
+        byte[] value = (transfer == null) ? null : transfer.serialize();
+        Blockchain.putStorage(getTransferQueueEntryKey(initiator, position), value);
+    }
+
+    /**
+     * Retrieves the transfer at a position of the initiator's pending transfer queue from storage
+     *
+     * @param initiator transfer initiator
+     * @param position  position in the queue, within the queue bounds
+     * @return the queued transfer
+     */
+    protected static PoolStorageObjects.QueuedTransfer getQueuedTransfer(Address initiator, long position) {
+        return PoolStorageObjects.QueuedTransfer.from(Blockchain.getStorage(getTransferQueueEntryKey(initiator, position)));
+    }
+
+    private static byte[] getTransferQueueEntryKey(Address initiator, long position) {
+        AionBuffer buffer = AionBuffer.allocate(Address.LENGTH + Long.BYTES);
+        buffer.putAddress(initiator);
+        buffer.putLong(position);
+        return getKey(StorageSlots.TRANSFER_QUEUE_ENTRY, buffer.getArray());
+    }
+
     /**
      * Puts pending commission rate request into storage
      *
@@ -60,6 +60,11 @@ public class PoolRewardsStateMachine {
      * ----------------------------------------------------------------------*/
 
     private void incrementPeriod() {
+        // without new block rewards the period would not change any value
+        if (currentPoolRewards.accumulatedBlockRewards.signum() == 0) {
+            return;
+        }
+
         // deal with the block rewards
         BigInteger commission = (BigInteger.valueOf(currentPoolRewards.commissionRate).multiply(currentPoolRewards.accumulatedBlockRewards))
                 .divide(BigInteger.valueOf(1000000));
@@ -96,6 +101,10 @@ public class PoolRewardsStateMachine {
         // return stake * (ending - starting)
         BigInteger startingCRR = delegatorInfo.startingCrr;
         BigInteger endingCRR = currentPoolRewards.currentCRR;
+        // no rewards have been distributed since the delegation, or there is nothing to settle
+        if (delegatorInfo.stake.signum() == 0 || endingCRR.equals(startingCRR)) {
+            return BigInteger.ZERO;
+        }
         BigInteger differenceCRR = endingCRR.subtract(startingCRR);
 
         // truncate the precision value
@@ -155,6 +164,14 @@ public class PoolRewardsStateMachine {
         return rewards;
     }
 
+    /**
+     * Returns the amount onWithdraw would return at this block, without settling the delegator's rewards.
+     */
+    public BigInteger getWithdrawableRewards(PoolStorageObjects.DelegatorInfo delegatorInfo, long blockNumber) {
+        incrementPeriod();
+        return delegatorInfo.settledRewards.add(calculateUnsettledRewards(delegatorInfo, blockNumber));
+    }
+
     public BigInteger onWithdrawOperator() {
         BigInteger commission = currentPoolRewards.accumulatedCommission;
         currentPoolRewards.accumulatedCommission = BigInteger.ZERO;
@@ -171,6 +188,13 @@ public class PoolRewardsStateMachine {
         currentPoolRewards.accumulatedBlockRewards = currentPoolRewards.accumulatedBlockRewards.add(blockReward);
     }
 
+    /**
+     * Distributes the accumulated block rewards to the delegators, without any delegator leaving or joining.
+     */
+    public void onSweep() {
+        incrementPeriod();
+    }
+
     public void setCommissionRate(int newRate) {
         incrementPeriod();
         currentPoolRewards.commissionRate = newRate;
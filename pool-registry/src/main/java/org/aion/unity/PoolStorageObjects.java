@@ -6,11 +6,39 @@ import org.aion.avm.userlib.AionBuffer;
 import java.math.BigInteger;
 
 public class PoolStorageObjects {
+    // records written in the compact layout start with this version byte, and store integers as length-prefixed two's complement bytes.
+    // records in the legacy fixed-width layout never start with it: they start with an address (0xa0 prefix) or a 32 byte integer,
+    // whose most significant byte is always zero for amounts within the coin supply.
+    private static final byte COMPACT_VERSION = 1;
+
+    private static boolean isCompact(byte[] serializedBytes) {
+        return serializedBytes[0] == COMPACT_VERSION;
+    }
+
+    private static int getCompactIntLength(byte[] value) {
+        return 1 + value.length;
+    }
+
+    private static void putCompactInt(AionBuffer buffer, byte[] value) {
+        buffer.putByte((byte) value.length);
+        buffer.put(value);
+    }
+
+    private static BigInteger getCompactInt(AionBuffer buffer) {
+        byte[] value = new byte[buffer.getByte()];
+        buffer.get(value);
+        return new BigInteger(value);
+    }
+
     static class DelegatorInfo {
         BigInteger stake;
         BigInteger settledRewards;
         BigInteger startingCrr;
         long startingCrrBlockNumber;
+        // position in the pool's delegator list, -1 for records stored in the legacy layout which are not in the list
+        int position;
+        // not serialized, indicates whether the info was read from storage
+        boolean isStored;
 
         protected DelegatorInfo() {
             stake = BigInteger.ZERO;
@@ -26,19 +54,34 @@ public class PoolStorageObjects {
         }
 
         protected byte[] serialize() {
-            int length = 32 * 3 + Long.BYTES;
+            byte[] stakeBytes = stake.toByteArray();
+            byte[] settledRewardsBytes = settledRewards.toByteArray();
+            byte[] startingCrrBytes = startingCrr.toByteArray();
+            int length = 1 + getCompactIntLength(stakeBytes) + getCompactIntLength(settledRewardsBytes) + getCompactIntLength(startingCrrBytes) + Long.BYTES + Integer.BYTES;
             AionBuffer aionBuffer = AionBuffer.allocate(length);
-            aionBuffer.put32ByteInt(stake);
-            aionBuffer.put32ByteInt(settledRewards);
-            aionBuffer.put32ByteInt(startingCrr);
+            aionBuffer.putByte(COMPACT_VERSION);
+            putCompactInt(aionBuffer, stakeBytes);
+            putCompactInt(aionBuffer, settledRewardsBytes);
+            putCompactInt(aionBuffer, startingCrrBytes);
             aionBuffer.putLong(startingCrrBlockNumber);
+            aionBuffer.putInt(position);
 
             return aionBuffer.getArray();
         }
 
         protected static DelegatorInfo from(byte[] serializedBytes) {
             AionBuffer buffer = AionBuffer.wrap(serializedBytes);
-            return new DelegatorInfo(buffer.get32ByteInt(), buffer.get32ByteInt(), buffer.get32ByteInt(), buffer.getLong());
+            DelegatorInfo delegatorInfo;
+            if (!isCompact(serializedBytes)) {
+                delegatorInfo = new DelegatorInfo(buffer.get32ByteInt(), buffer.get32ByteInt(), buffer.get32ByteInt(), buffer.getLong());
+                delegatorInfo.position = -1;
+            } else {
+                buffer.getByte();
+                delegatorInfo = new DelegatorInfo(getCompactInt(buffer), getCompactInt(buffer), getCompactInt(buffer), buffer.getLong());
+                delegatorInfo.position = buffer.getInt();
+            }
+            delegatorInfo.isStored = true;
+            return delegatorInfo;
         }
     }
 
@@ -58,6 +101,14 @@ public class PoolStorageObjects {
         // default is set to true because pools can only register if they pass in the minimum self bond value
         boolean isActive = true;
 
+        // block rewards that have been credited to the pool but are still held by the coinbase address
+        BigInteger unsweptBlockRewards = BigInteger.ZERO;
+        // the coinbase balance is transferred once it reaches the threshold, or the interval (in blocks) has passed since the last transfer.
+        // the defaults transfer it as soon as it is detected
+        BigInteger sweepThreshold = BigInteger.ZERO;
+        long sweepInterval;
+        long lastSweepBlockNumber;
+
         protected PoolRewards(Address coinbaseAddress, int commissionRate) {
             this.coinbaseAddress = coinbaseAddress;
             this.commissionRate = commissionRate;
@@ -77,24 +128,62 @@ public class PoolStorageObjects {
         }
 
         protected byte[] serialize() {
-            int length = 32 * 6 + Address.LENGTH + Integer.BYTES + 1;
+            byte[] accumulatedStakeBytes = accumulatedStake.toByteArray();
+            byte[] accumulatedCommissionBytes = accumulatedCommission.toByteArray();
+            byte[] outstandingRewardsBytes = outstandingRewards.toByteArray();
+            byte[] currentCRRBytes = currentCRR.toByteArray();
+            byte[] accumulatedBlockRewardsBytes = accumulatedBlockRewards.toByteArray();
+            byte[] pendingStakeBytes = pendingStake.toByteArray();
+            int length = 1 + getCompactIntLength(accumulatedStakeBytes) + getCompactIntLength(accumulatedCommissionBytes) +
+                    getCompactIntLength(outstandingRewardsBytes) + getCompactIntLength(currentCRRBytes) +
+                    getCompactIntLength(accumulatedBlockRewardsBytes) + getCompactIntLength(pendingStakeBytes) +
+                    Address.LENGTH + Integer.BYTES + 1;
+            // the sweep state is only written if it differs from the defaults, which keeps the records of pools that sweep on every detection small
+            boolean hasSweepState = unsweptBlockRewards.signum() != 0 || sweepThreshold.signum() != 0 || sweepInterval != 0;
+            byte[] unsweptBlockRewardsBytes = null;
+            byte[] sweepThresholdBytes = null;
+            if (hasSweepState) {
+                unsweptBlockRewardsBytes = unsweptBlockRewards.toByteArray();
+                sweepThresholdBytes = sweepThreshold.toByteArray();
+                length += getCompactIntLength(unsweptBlockRewardsBytes) + getCompactIntLength(sweepThresholdBytes) + Long.BYTES * 2;
+            }
             AionBuffer aionBuffer = AionBuffer.allocate(length);
-            aionBuffer.put32ByteInt(accumulatedStake);
-            aionBuffer.put32ByteInt(accumulatedCommission);
-            aionBuffer.put32ByteInt(outstandingRewards);
-            aionBuffer.put32ByteInt(currentCRR);
-            aionBuffer.put32ByteInt(accumulatedBlockRewards);
-            aionBuffer.put32ByteInt(pendingStake);
+            aionBuffer.putByte(COMPACT_VERSION);
+            putCompactInt(aionBuffer, accumulatedStakeBytes);
+            putCompactInt(aionBuffer, accumulatedCommissionBytes);
+            putCompactInt(aionBuffer, outstandingRewardsBytes);
+            putCompactInt(aionBuffer, currentCRRBytes);
+            putCompactInt(aionBuffer, accumulatedBlockRewardsBytes);
+            putCompactInt(aionBuffer, pendingStakeBytes);
             aionBuffer.putAddress(coinbaseAddress);
             aionBuffer.putInt(commissionRate);
             aionBuffer.putBoolean(isActive);
+            if (hasSweepState) {
+                putCompactInt(aionBuffer, unsweptBlockRewardsBytes);
+                putCompactInt(aionBuffer, sweepThresholdBytes);
+                aionBuffer.putLong(sweepInterval);
+                aionBuffer.putLong(lastSweepBlockNumber);
+            }
             return aionBuffer.getArray();
         }
 
         protected static PoolRewards from(byte[] serializedBytes) {
             AionBuffer buffer = AionBuffer.wrap(serializedBytes);
-            return new PoolRewards(buffer.get32ByteInt(), buffer.get32ByteInt(), buffer.get32ByteInt(), buffer.get32ByteInt(),
-                    buffer.get32ByteInt(), buffer.get32ByteInt(), buffer.getAddress(), buffer.getInt(), buffer.getBoolean());
+            if (!isCompact(serializedBytes)) {
+                return new PoolRewards(buffer.get32ByteInt(), buffer.get32ByteInt(), buffer.get32ByteInt(), buffer.get32ByteInt(),
+                        buffer.get32ByteInt(), buffer.get32ByteInt(), buffer.getAddress(), buffer.getInt(), buffer.getBoolean());
+            }
+            buffer.getByte();
+            PoolRewards poolRewards = new PoolRewards(getCompactInt(buffer), getCompactInt(buffer), getCompactInt(buffer), getCompactInt(buffer),
+                    getCompactInt(buffer), getCompactInt(buffer), buffer.getAddress(), buffer.getInt(), buffer.getBoolean());
+            // records without the sweep state keep the defaults
+            if (buffer.getPosition() < buffer.getLimit()) {
+                poolRewards.unsweptBlockRewards = getCompactInt(buffer);
+                poolRewards.sweepThreshold = getCompactInt(buffer);
+                poolRewards.sweepInterval = buffer.getLong();
+                poolRewards.lastSweepBlockNumber = buffer.getLong();
+            }
+            return poolRewards;
         }
     }
 
@@ -112,18 +201,24 @@ public class PoolStorageObjects {
         }
 
         protected byte[] serialize() {
-            int length = Address.LENGTH * 3 + 32;
+            byte[] amountBytes = amount.toByteArray();
+            int length = 1 + Address.LENGTH * 3 + getCompactIntLength(amountBytes);
             AionBuffer aionBuffer = AionBuffer.allocate(length);
+            aionBuffer.putByte(COMPACT_VERSION);
             aionBuffer.putAddress(initiator);
             aionBuffer.putAddress(fromPool);
             aionBuffer.putAddress(toPool);
-            aionBuffer.put32ByteInt(amount);
+            putCompactInt(aionBuffer, amountBytes);
             return aionBuffer.getArray();
         }
 
         protected static StakeTransfer from(byte[] serializedBytes) {
             AionBuffer buffer = AionBuffer.wrap(serializedBytes);
-            return new StakeTransfer(buffer.getAddress(), buffer.getAddress(), buffer.getAddress(), buffer.get32ByteInt());
+            if (!isCompact(serializedBytes)) {
+                return new StakeTransfer(buffer.getAddress(), buffer.getAddress(), buffer.getAddress(), buffer.get32ByteInt());
+            }
+            buffer.getByte();
+            return new StakeTransfer(buffer.getAddress(), buffer.getAddress(), buffer.getAddress(), getCompactInt(buffer));
         }
     }
 
@@ -152,4 +247,57 @@ public class PoolStorageObjects {
             return new CommissionUpdate(buffer.getAddress(), buffer.getInt(), buffer.getLong());
         }
     }
+
+    /**
+     * Bounds of a delegator's pending transfer queue. Positions in [head, tail) hold the transfers in the order they
+     * were initiated. headBlockNumber is a lower bound of the block number of the transfer at the head.
+     */
+    static class TransferQueue {
+        long head;
+        long tail;
+        long headBlockNumber;
+
+        protected TransferQueue(long head, long tail, long headBlockNumber) {
+            this.head = head;
+            this.tail = tail;
+            this.headBlockNumber = headBlockNumber;
+        }
+
+        protected byte[] serialize() {
+            int length = Long.BYTES * 3;
+            AionBuffer aionBuffer = AionBuffer.allocate(length);
+            aionBuffer.putLong(head);
+            aionBuffer.putLong(tail);
+            aionBuffer.putLong(headBlockNumber);
+            return aionBuffer.getArray();
+        }
+
+        protected static TransferQueue from(byte[] serializedBytes) {
+            AionBuffer buffer = AionBuffer.wrap(serializedBytes);
+            return new TransferQueue(buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    static class QueuedTransfer {
+        long id;
+        long blockNumber;
+
+        protected QueuedTransfer(long id, long blockNumber) {
+            this.id = id;
+            this.blockNumber = blockNumber;
+        }
+
+        protected byte[] serialize() {
+            int length = Long.BYTES * 2;
+            AionBuffer aionBuffer = AionBuffer.allocate(length);
+            aionBuffer.putLong(id);
+            aionBuffer.putLong(blockNumber);
+            return aionBuffer.getArray();
+        }
+
+        protected static QueuedTransfer from(byte[] serializedBytes) {
+            AionBuffer buffer = AionBuffer.wrap(serializedBytes);
+            return new QueuedTransfer(buffer.getLong(), buffer.getLong());
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package org.aion.unity;
+
+import org.aion.avm.embed.AvmRule;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the energy used by benchmarked calls and writes them as a JSON report.
+ * Each entry holds the method name, the scenario it was measured under and the energy used by the transaction.
+ * The modules are built independently, the same class is used by pool-registry and staker-registry and the two copies are kept identical.
+ */
+public class EnergyReport {
+
+    private static final String REPORT_DIRECTORY = "target/energy-report";
+
+    private final String contractName;
+    private final List<String> entries = new ArrayList<>();
+
+    public EnergyReport(String contractName) {
+        this.contractName = contractName;
+    }
+
+    /**
+     * Records the energy used by a successful transaction.
+     *
+     * @param method   the name of the invoked method
+     * @param scenario the state the method was invoked under, e.g. "storage=cold,delegators=1"
+     * @param result   the transaction result
+     */
+    public synchronized void record(String method, String scenario, AvmRule.ResultWrapper result) {
+        if (!result.getReceiptStatus().isSuccess()) {
+            throw new IllegalStateException(method + " failed under " + scenario + ": " + result.getReceiptStatus());
+        }
+        long energyUsed = result.getTransactionResult().energyUsed;
+        entries.add("  {\"contract\": \"" + contractName + "\", \"method\": \"" + method + "\", \"scenario\": \"" + scenario
+                + "\", \"energyUsed\": " + energyUsed + "}");
+    }
+
+    /**
+     * Writes the recorded entries to target/energy-report/{contractName}.json
+     */
+    public synchronized void write() {
+        Path path = Paths.get(REPORT_DIRECTORY, contractName + ".json");
+        String json = "[\n" + String.join(",\n", entries) + "\n]\n";
+        try {
+            Files.createDirectories(path.getParent());
+            Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write the energy report.", e);
+        }
+    }
+}
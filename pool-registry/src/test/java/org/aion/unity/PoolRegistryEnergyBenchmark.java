@@ -0,0 +1,668 @@
+package org.aion.unity;
+
+import avm.Address;
+import org.aion.avm.core.util.Helpers;
+import org.aion.avm.embed.AvmRule;
+import org.aion.avm.tooling.ABIUtil;
+import org.aion.avm.userlib.abi.ABIStreamingEncoder;
+import org.aion.kernel.TestingState;
+import org.aion.types.AionAddress;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the energy used by the PoolRegistry callables under controlled state:
+ * - storage: cold (the delegator has no record in the pool) or warm (the delegator has delegated before);
+ * - delegators: the number of delegators in the pool before the call (1 or DELEGATOR_COUNT);
+ * - rewards: whether block rewards are pending in the pool coinbase contract.
+ * <p>
+ * The results are written to target/energy-report/PoolRegistry.json.
+ * This class is not part of the default test run, use: mvn test -Dtest=PoolRegistryEnergyBenchmark
+ */
+public class PoolRegistryEnergyBenchmark {
+
+    private static BigInteger ENOUGH_BALANCE_TO_TRANSACT = BigInteger.TEN.pow(18 + 5);
+    private static BigInteger MIN_SELF_STAKE = new BigInteger("1000000000000000000000");
+    private static long COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD = 6 * 60 * 24 * 7;
+    private static long UNBOND_LOCK_UP_PERIOD = 6 * 60 * 24;
+    private static long TRANSFER_LOCK_UP_PERIOD = 6 * 10;
+    private static BigInteger DELEGATION = BigInteger.TEN.pow(18);
+    private static BigInteger BLOCK_REWARDS = new BigInteger("4500000000000000000");
+    private static int DELEGATOR_COUNT = 20;
+    private static long ENERGY_LIMIT = 5_000_000L;
+
+    private static EnergyReport report = new EnergyReport("PoolRegistry");
+
+    @Rule
+    public AvmRule RULE = new AvmRule(false);
+
+    // default address with balance
+    private Address preminedAddress = RULE.getPreminedAccount();
+
+    // contract address
+    private Address stakerRegistry;
+    private Address poolRegistry;
+
+    @Before
+    public void setup() {
+        try (Scanner s = new Scanner(PoolRegistryTest.class.getResourceAsStream("StakerRegistry.txt"))) {
+            String contract = s.nextLine();
+            AvmRule.ResultWrapper result = RULE.deploy(preminedAddress, BigInteger.ZERO, Hex.decode(contract));
+            assertTrue(result.getReceiptStatus().isSuccess());
+            stakerRegistry = result.getDappAddress();
+        }
+
+        Address placeHolder = new Address(Helpers.hexStringToBytes("0000000000000000000000000000000000000000000000000000000000000000"));
+        byte[] coinbaseArguments = ABIUtil.encodeDeploymentArguments(placeHolder);
+        byte[] coinbaseBytes = RULE.getDappBytes(PoolCoinbase.class, coinbaseArguments, 1);
+
+        byte[] arguments = ABIUtil.encodeDeploymentArguments(stakerRegistry, MIN_SELF_STAKE, BigInteger.ONE, COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD, coinbaseBytes);
+        byte[] data = RULE.getDappBytes(PoolRegistry.class, arguments, 1, PoolStorageObjects.class, PoolRewardsStateMachine.class, PoolRegistryEvents.class, PoolRegistryStorage.class);
+
+        AvmRule.ResultWrapper result = RULE.deploy(preminedAddress, BigInteger.ZERO, data);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        poolRegistry = result.getDappAddress();
+    }
+
+    @AfterClass
+    public static void writeReport() {
+        report.write();
+    }
+
+    @Test
+    public void benchmarkRegisterPool() {
+        Address newPool = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("registerPool")
+                .encodeOneAddress(newPool)
+                .encodeOneInteger(100000)
+                .encodeOneByteArray("https://".getBytes())
+                .encodeOneByteArray(new byte[32])
+                .toBytes();
+        report.record("registerPool", "storage=cold", RULE.call(newPool, poolRegistry, MIN_SELF_STAKE, txData, ENERGY_LIMIT, 1L));
+    }
+
+    @Test
+    public void benchmarkDelegate() {
+        for (int delegators : new int[]{1, DELEGATOR_COUNT}) {
+            for (boolean pendingRewards : new boolean[]{false, true}) {
+                for (boolean warm : new boolean[]{false, true}) {
+                    Pool pool = setupPool(delegators, pendingRewards);
+                    Address delegator = warm ? pool.delegators.get(0) : RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+                    byte[] txData = new ABIStreamingEncoder()
+                            .encodeOneString("delegate")
+                            .encodeOneAddress(pool.address)
+                            .toBytes();
+                    report.record("delegate", scenario(warm, delegators, pendingRewards),
+                            RULE.call(delegator, poolRegistry, DELEGATION, txData, ENERGY_LIMIT, 1L));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkLazySweep() {
+        Pool pool = setupPool(DELEGATOR_COUNT, false);
+        byte[] txData = ABIUtil.encodeMethodArguments("setSweepPolicy", BLOCK_REWARDS.multiply(BigInteger.TEN), 0L);
+        report.record("setSweepPolicy", "", RULE.call(pool.address, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+        Address delegator = pool.delegators.get(0);
+        byte[] delegateData = ABIUtil.encodeMethodArguments("delegate", pool.address);
+        generateBlock(pool.address, BLOCK_REWARDS);
+        report.record("delegate", "sweep=lazy,storage=warm,delegators=" + DELEGATOR_COUNT + ",rewards=pending",
+                RULE.call(delegator, poolRegistry, DELEGATION, delegateData, ENERGY_LIMIT, 1L));
+        tweakBlockNumber(getBlockNumber() + 1);
+        report.record("delegate", "sweep=lazy,storage=warm,delegators=" + DELEGATOR_COUNT + ",rewards=credited",
+                RULE.call(delegator, poolRegistry, DELEGATION, delegateData, ENERGY_LIMIT, 1L));
+
+        // the unswept balance has to be transferred to pay out the rewards
+        generateBlock(pool.address, BLOCK_REWARDS);
+        report.record("withdrawRewards", "sweep=lazy,storage=warm,delegators=" + DELEGATOR_COUNT + ",rewards=pending",
+                RULE.call(delegator, poolRegistry, BigInteger.ZERO, withdrawRewardsData(pool.address), ENERGY_LIMIT, 1L));
+    }
+
+    @Test
+    public void benchmarkCommands() {
+        for (boolean isCommand : new boolean[]{false, true}) {
+            String scenario = "encoding=" + (isCommand ? "command," : "abi,") + scenario(true, DELEGATOR_COUNT, true);
+
+            Pool pool = setupPool(DELEGATOR_COUNT, true);
+            byte[] txData = isCommand ? PoolRegistryCommands.delegate(pool.address) : ABIUtil.encodeMethodArguments("delegate", pool.address);
+            report.record("delegate", scenario, RULE.call(pool.delegators.get(0), poolRegistry, DELEGATION, txData, ENERGY_LIMIT, 1L));
+
+            pool = setupPool(DELEGATOR_COUNT, true);
+            txData = isCommand ? PoolRegistryCommands.withdrawRewards(pool.address) : withdrawRewardsData(pool.address);
+            report.record("withdrawRewards", scenario, RULE.call(pool.delegators.get(0), poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            pool = setupPool(DELEGATOR_COUNT, true);
+            txData = isCommand ? PoolRegistryCommands.redelegateRewards(pool.address) : ABIUtil.encodeMethodArguments("redelegateRewards", pool.address);
+            report.record("redelegateRewards", scenario, RULE.call(pool.delegators.get(0), poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            pool = setupPool(DELEGATOR_COUNT, true);
+            AvmRule.ResultWrapper result = RULE.call(pool.delegators.get(0), poolRegistry, BigInteger.ZERO, undelegateData(pool.address), ENERGY_LIMIT, 1L);
+            assertTrue(result.getReceiptStatus().isSuccess());
+            long id = (long) result.getDecodedReturnData();
+            tweakBlockNumber(getBlockNumber() + UNBOND_LOCK_UP_PERIOD);
+            txData = isCommand ? PoolRegistryCommands.finalizeUndelegate(id) : ABIUtil.encodeMethodArguments("finalizeUndelegate", id);
+            report.record("finalizeUndelegate", scenario, RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkUndelegate() {
+        for (int delegators : new int[]{1, DELEGATOR_COUNT}) {
+            for (boolean pendingRewards : new boolean[]{false, true}) {
+                Pool pool = setupPool(delegators, pendingRewards);
+                report.record("undelegate", scenario(true, delegators, pendingRewards),
+                        RULE.call(pool.delegators.get(0), poolRegistry, BigInteger.ZERO, undelegateData(pool.address), ENERGY_LIMIT, 1L));
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkRedelegateRewards() {
+        for (int delegators : new int[]{1, DELEGATOR_COUNT}) {
+            for (boolean pendingRewards : new boolean[]{false, true}) {
+                Pool pool = setupPool(delegators, pendingRewards);
+                byte[] txData = new ABIStreamingEncoder()
+                        .encodeOneString("redelegateRewards")
+                        .encodeOneAddress(pool.address)
+                        .toBytes();
+                report.record("redelegateRewards", scenario(true, delegators, pendingRewards),
+                        RULE.call(pool.delegators.get(0), poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkWithdrawRewards() {
+        for (int delegators : new int[]{1, DELEGATOR_COUNT}) {
+            for (boolean pendingRewards : new boolean[]{false, true}) {
+                for (boolean warm : new boolean[]{false, true}) {
+                    Pool pool = setupPool(delegators, pendingRewards);
+                    Address delegator = warm ? pool.delegators.get(0) : RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+                    report.record("withdrawRewards", scenario(warm, delegators, pendingRewards),
+                            RULE.call(delegator, poolRegistry, BigInteger.ZERO, withdrawRewardsData(pool.address), ENERGY_LIMIT, 1L));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkWithdrawRewardsOperator() {
+        for (boolean pendingRewards : new boolean[]{false, true}) {
+            Pool pool = setupPool(DELEGATOR_COUNT, pendingRewards);
+            report.record("withdrawRewards", "caller=operator," + scenario(true, DELEGATOR_COUNT, pendingRewards),
+                    RULE.call(pool.address, poolRegistry, BigInteger.ZERO, withdrawRewardsData(pool.address), ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkWithdrawRewardsFromPools() {
+        for (int count : new int[]{1, 5, 10}) {
+            Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+            Address[] pools = new Address[count];
+            for (int i = 0; i < count; i++) {
+                pools[i] = setupPool(0, false).address;
+                delegate(pools[i], delegator, DELEGATION);
+            }
+            for (Address pool : pools) {
+                generateBlock(pool, BLOCK_REWARDS);
+            }
+
+            byte[] txData = ABIUtil.encodeMethodArguments("getRewardsForPools", delegator, pools);
+            report.record("getRewardsForPools", "pools=" + count + ",rewards=pending",
+                    RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+            txData = ABIUtil.encodeMethodArguments("withdrawRewardsFromPools", (Object) pools);
+            report.record("withdrawRewardsFromPools", "pools=" + count + ",rewards=pending",
+                    RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkSweepPools() {
+        for (int count : new int[]{1, 10}) {
+            Address[] pools = new Address[count];
+            for (int i = 0; i < count; i++) {
+                pools[i] = setupPool(DELEGATOR_COUNT, false).address;
+                generateBlock(pools[i], BLOCK_REWARDS);
+            }
+            byte[] txData = ABIUtil.encodeMethodArguments("sweepPools", (Object) pools);
+            report.record("sweepPools", "pools=" + count + ",rewards=pending",
+                    RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            // the next call to a swept pool does not settle the block rewards
+            byte[] delegateData = ABIUtil.encodeMethodArguments("delegate", pools[0]);
+            Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+            report.record("delegate", "swept=true,storage=cold,pools=" + count,
+                    RULE.call(delegator, poolRegistry, DELEGATION, delegateData, ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkAutoDelegateRewards() {
+        for (int delegators : new int[]{1, DELEGATOR_COUNT}) {
+            for (boolean pendingRewards : new boolean[]{false, true}) {
+                Pool pool = setupPool(delegators, pendingRewards);
+                Address delegator = pool.delegators.get(0);
+                enableAutoRewardsDelegation(pool.address, delegator);
+                Address keeper = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+                byte[] txData = new ABIStreamingEncoder()
+                        .encodeOneString("autoDelegateRewards")
+                        .encodeOneAddress(pool.address)
+                        .encodeOneAddress(delegator)
+                        .toBytes();
+                report.record("autoDelegateRewards", scenario(true, delegators, pendingRewards),
+                        RULE.call(keeper, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkAutoDelegateRewardsBatch() {
+        for (int delegators : new int[]{1, DELEGATOR_COUNT}) {
+            Pool pool = setupPool(delegators, true);
+            for (Address delegator : pool.delegators) {
+                enableAutoRewardsDelegation(pool.address, delegator);
+            }
+            Address keeper = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("autoDelegateRewardsBatch")
+                    .encodeOneAddress(pool.address)
+                    .encodeOneAddressArray(pool.delegators.toArray(new Address[0]))
+                    .toBytes();
+            report.record("autoDelegateRewardsBatch", "batchSize=" + delegators + "," + scenario(true, delegators, true),
+                    RULE.call(keeper, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT * 4, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkTransferDelegation() {
+        for (int delegators : new int[]{1, DELEGATOR_COUNT}) {
+            for (boolean pendingRewards : new boolean[]{false, true}) {
+                Pool fromPool = setupPool(delegators, pendingRewards);
+                Pool toPool = setupPool(delegators, pendingRewards);
+                report.record("transferDelegation", scenario(true, delegators, pendingRewards),
+                        RULE.call(fromPool.delegators.get(0), poolRegistry, BigInteger.ZERO, transferDelegationData(fromPool.address, toPool.address), ENERGY_LIMIT, 1L));
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkFinalizeUndelegate() {
+        for (boolean pendingRewards : new boolean[]{false, true}) {
+            Pool pool = setupPool(DELEGATOR_COUNT, pendingRewards);
+            AvmRule.ResultWrapper result = RULE.call(pool.delegators.get(0), poolRegistry, BigInteger.ZERO, undelegateData(pool.address), ENERGY_LIMIT, 1L);
+            assertTrue(result.getReceiptStatus().isSuccess());
+            long id = (long) result.getDecodedReturnData();
+            tweakBlockNumber(getBlockNumber() + UNBOND_LOCK_UP_PERIOD);
+
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("finalizeUndelegate")
+                    .encodeOneLong(id)
+                    .toBytes();
+            report.record("finalizeUndelegate", scenario(true, DELEGATOR_COUNT, pendingRewards),
+                    RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkFinalizeTransfer() {
+        for (boolean pendingRewards : new boolean[]{false, true}) {
+            for (boolean warm : new boolean[]{false, true}) {
+                Pool fromPool = setupPool(DELEGATOR_COUNT, pendingRewards);
+                Pool toPool = setupPool(DELEGATOR_COUNT, false);
+                Address delegator = fromPool.delegators.get(0);
+                if (warm) {
+                    delegate(toPool.address, delegator, DELEGATION);
+                }
+                AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, transferDelegationData(fromPool.address, toPool.address), ENERGY_LIMIT, 1L);
+                assertTrue(result.getReceiptStatus().isSuccess());
+                long id = (long) result.getDecodedReturnData();
+                tweakBlockNumber(getBlockNumber() + TRANSFER_LOCK_UP_PERIOD);
+                if (pendingRewards) {
+                    generateBlock(toPool.address, BLOCK_REWARDS);
+                }
+
+                byte[] txData = new ABIStreamingEncoder()
+                        .encodeOneString("finalizeTransfer")
+                        .encodeOneLong(id)
+                        .toBytes();
+                report.record("finalizeTransfer", scenario(warm, DELEGATOR_COUNT, pendingRewards),
+                        RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkAutoFinalizeTransfers() {
+        for (int transfers : new int[]{1, 3}) {
+            Pool fromPool = setupPool(DELEGATOR_COUNT, false);
+            Pool toPool = setupPool(DELEGATOR_COUNT, false);
+            Address delegator = fromPool.delegators.get(0);
+            delegate(fromPool.address, delegator, DELEGATION.multiply(BigInteger.valueOf(transfers)));
+            for (int i = 0; i < transfers; i++) {
+                assertTrue(RULE.call(delegator, poolRegistry, BigInteger.ZERO, transferDelegationData(fromPool.address, toPool.address), ENERGY_LIMIT, 1L).getReceiptStatus().isSuccess());
+            }
+            tweakBlockNumber(getBlockNumber() + TRANSFER_LOCK_UP_PERIOD);
+
+            // the matured transfers are finalized by the next interaction of the initiator
+            report.record("withdrawRewards", "storage=warm,delegators=" + DELEGATOR_COUNT + ",maturedTransfers=" + transfers,
+                    RULE.call(delegator, poolRegistry, BigInteger.ZERO, withdrawRewardsData(fromPool.address), ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkFinalizeBatches() {
+        for (int batchSize : new int[]{1, DELEGATOR_COUNT}) {
+            Pool fromPool = setupPool(batchSize, false);
+            Pool toPool = setupPool(batchSize, false);
+
+            long[] undelegateIds = new long[batchSize];
+            long[] transferIds = new long[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                Address delegator = fromPool.delegators.get(i);
+                AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, undelegateData(fromPool.address), ENERGY_LIMIT, 1L);
+                assertTrue(result.getReceiptStatus().isSuccess());
+                undelegateIds[i] = (long) result.getDecodedReturnData();
+
+                result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, transferDelegationData(fromPool.address, toPool.address), ENERGY_LIMIT, 1L);
+                assertTrue(result.getReceiptStatus().isSuccess());
+                transferIds[i] = (long) result.getDecodedReturnData();
+            }
+            tweakBlockNumber(getBlockNumber() + UNBOND_LOCK_UP_PERIOD);
+
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("finalizeUndelegates")
+                    .encodeOneLongArray(undelegateIds)
+                    .toBytes();
+            report.record("finalizeUndelegates", "batchSize=" + batchSize,
+                    RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT * 4, 1L));
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("finalizeTransfers")
+                    .encodeOneLongArray(transferIds)
+                    .toBytes();
+            report.record("finalizeTransfers", "batchSize=" + batchSize,
+                    RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT * 4, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkAutoRewardsDelegationSettings() {
+        Pool pool = setupPool(DELEGATOR_COUNT, false);
+        Address delegator = pool.delegators.get(0);
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("enableAutoRewardsDelegation")
+                .encodeOneAddress(pool.address)
+                .encodeOneInteger(100000)
+                .toBytes();
+        report.record("enableAutoRewardsDelegation", "storage=cold", RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        report.record("enableAutoRewardsDelegation", "storage=warm", RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("disableAutoRewardsDedelegation")
+                .encodeOneAddress(pool.address)
+                .toBytes();
+        report.record("disableAutoRewardsDedelegation", "storage=warm", RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+    }
+
+    @Test
+    public void benchmarkCommissionRateChange() {
+        for (boolean pendingRewards : new boolean[]{false, true}) {
+            Pool pool = setupPool(DELEGATOR_COUNT, false);
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("requestCommissionRateChange")
+                    .encodeOneInteger(200000)
+                    .toBytes();
+            AvmRule.ResultWrapper result = RULE.call(pool.address, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L);
+            report.record("requestCommissionRateChange", "rewards=" + (pendingRewards ? "pending" : "none"), result);
+            long id = (long) result.getDecodedReturnData();
+
+            tweakBlockNumber(getBlockNumber() + COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD);
+            if (pendingRewards) {
+                generateBlock(pool.address, BLOCK_REWARDS);
+            }
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("finalizeCommissionRateChange")
+                    .encodeOneLong(id)
+                    .toBytes();
+            report.record("finalizeCommissionRateChange", "rewards=" + (pendingRewards ? "pending" : "none"),
+                    RULE.call(pool.address, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkPoolOperatorSettings() {
+        Pool pool = setupPool(1, false);
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("updateMetaData")
+                .encodeOneByteArray("https://new-url".getBytes())
+                .encodeOneByteArray(new byte[32])
+                .toBytes();
+        report.record("updateMetaData", "storage=warm", RULE.call(pool.address, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("setSigningAddress")
+                .encodeOneAddress(RULE.getRandomAddress(BigInteger.ZERO))
+                .toBytes();
+        tweakBlockNumber(getBlockNumber() + 6 * 60 * 24 * 7);
+        report.record("setSigningAddress", "storage=warm", RULE.call(pool.address, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+    }
+
+    @Test
+    public void benchmarkQueries() {
+        for (boolean pendingRewards : new boolean[]{false, true}) {
+            Pool pool = setupPool(DELEGATOR_COUNT, pendingRewards);
+            Address delegator = pool.delegators.get(0);
+            String scenario = scenario(true, DELEGATOR_COUNT, pendingRewards);
+
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("getRewards")
+                    .encodeOneAddress(pool.address)
+                    .encodeOneAddress(delegator)
+                    .toBytes();
+            report.record("getRewards", scenario, RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("getStake")
+                    .encodeOneAddress(pool.address)
+                    .encodeOneAddress(delegator)
+                    .toBytes();
+            report.record("getStake", scenario, RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("getTotalStake")
+                    .encodeOneAddress(pool.address)
+                    .toBytes();
+            report.record("getTotalStake", scenario, RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("getPoolInfo")
+                    .encodeOneAddress(pool.address)
+                    .toBytes();
+            report.record("getPoolInfo", scenario, RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("getOutstandingRewards")
+                    .encodeOneAddress(pool.address)
+                    .toBytes();
+            report.record("getOutstandingRewards", scenario, RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("getAutoRewardsDelegationFee")
+                    .encodeOneAddress(pool.address)
+                    .encodeOneAddress(delegator)
+                    .toBytes();
+            report.record("getAutoRewardsDelegationFee", scenario, RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("getStakerRegistry")
+                .toBytes();
+        report.record("getStakerRegistry", "", RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+    }
+
+    @Test
+    public void benchmarkMultiPoolQueries() {
+        Pool pool = setupPool(DELEGATOR_COUNT, false);
+
+        Address[] pools = new Address[DELEGATOR_COUNT];
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = (i == 0) ? pool.address : setupPool(0, false).address;
+        }
+
+        for (int count : new int[]{1, 10, DELEGATOR_COUNT}) {
+            byte[] txData = ABIUtil.encodeMethodArguments("getPoolInfos", (Object) Arrays.copyOf(pools, count));
+            report.record("getPoolInfos", "pools=" + count, RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+
+        for (int limit : new int[]{1, 10, DELEGATOR_COUNT}) {
+            byte[] txData = ABIUtil.encodeMethodArguments("getDelegators", pool.address, 0, limit);
+            report.record("getDelegators", "limit=" + limit + ",delegators=" + (DELEGATOR_COUNT + 1),
+                    RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            for (boolean onlyActive : new boolean[]{false, true}) {
+                txData = ABIUtil.encodeMethodArguments("getPools", 0, limit, onlyActive);
+                report.record("getPools", "limit=" + limit + ",onlyActive=" + onlyActive + ",pools=" + DELEGATOR_COUNT,
+                        RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+            }
+        }
+    }
+
+    private static String scenario(boolean warm, int delegators, boolean pendingRewards) {
+        return "storage=" + (warm ? "warm" : "cold") + ",delegators=" + delegators + ",rewards=" + (pendingRewards ? "pending" : "none");
+    }
+
+    /**
+     * Registers a new pool and delegates to it from the given number of delegators.
+     * The block number is incremented afterwards, so that the measured call is not in the same block as the delegations.
+     */
+    private Pool setupPool(int delegators, boolean pendingRewards) {
+        Pool pool = new Pool(RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT));
+
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("registerPool")
+                .encodeOneAddress(pool.address)
+                .encodeOneInteger(100000)
+                .encodeOneByteArray("https://".getBytes())
+                .encodeOneByteArray(new byte[32])
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(pool.address, poolRegistry, MIN_SELF_STAKE, txData, ENERGY_LIMIT, 1L);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        for (int i = 0; i < delegators; i++) {
+            Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+            delegate(pool.address, delegator, DELEGATION);
+            pool.delegators.add(delegator);
+        }
+
+        if (pendingRewards) {
+            generateBlock(pool.address, BLOCK_REWARDS);
+            // produce another block, so that the measured call also settles rewards from a previous period
+            delegate(pool.address, pool.delegators.get(pool.delegators.size() - 1), DELEGATION);
+            generateBlock(pool.address, BLOCK_REWARDS);
+        } else {
+            tweakBlockNumber(getBlockNumber() + 1);
+        }
+        return pool;
+    }
+
+    private void delegate(Address pool, Address delegator, BigInteger value) {
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("delegate")
+                .encodeOneAddress(pool)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, value, txData, ENERGY_LIMIT, 1L);
+        assertTrue(result.getReceiptStatus().isSuccess());
+    }
+
+    private void enableAutoRewardsDelegation(Address pool, Address delegator) {
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("enableAutoRewardsDelegation")
+                .encodeOneAddress(pool)
+                .encodeOneInteger(100000)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L);
+        assertTrue(result.getReceiptStatus().isSuccess());
+    }
+
+    private byte[] undelegateData(Address pool) {
+        return new ABIStreamingEncoder()
+                .encodeOneString("undelegate")
+                .encodeOneAddress(pool)
+                .encodeOneBigInteger(DELEGATION.divide(BigInteger.TWO))
+                .encodeOneBigInteger(BigInteger.TEN)
+                .toBytes();
+    }
+
+    private byte[] withdrawRewardsData(Address pool) {
+        return new ABIStreamingEncoder()
+                .encodeOneString("withdrawRewards")
+                .encodeOneAddress(pool)
+                .toBytes();
+    }
+
+    private byte[] transferDelegationData(Address fromPool, Address toPool) {
+        return new ABIStreamingEncoder()
+                .encodeOneString("transferDelegation")
+                .encodeOneAddress(fromPool)
+                .encodeOneAddress(toPool)
+                .encodeOneBigInteger(DELEGATION.divide(BigInteger.TWO))
+                .encodeOneBigInteger(BigInteger.TEN)
+                .toBytes();
+    }
+
+    private long getBlockNumber() {
+        return RULE.kernel.getBlockNumber();
+    }
+
+    private void generateBlock(Address pool, BigInteger blockRewards) {
+        AionAddress coinbaseAddress = new AionAddress(getCoinbaseAddress(pool).toByteArray());
+        RULE.kernel.adjustBalance(coinbaseAddress, blockRewards);
+        tweakBlockNumber(getBlockNumber() + 1);
+    }
+
+    private void tweakBlockNumber(long number) {
+        try {
+            Field f = TestingState.class.getDeclaredField("blockNumber");
+            f.setAccessible(true);
+
+            f.set(RULE.kernel, number);
+
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Address getCoinbaseAddress(Address pool) {
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("getCoinbaseAddress")
+                .encodeOneAddress(pool)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        return (Address) result.getDecodedReturnData();
+    }
+
+    private static class Pool {
+        private final Address address;
+        private final List<Address> delegators = new ArrayList<>();
+
+        private Pool(Address address) {
+            this.address = address;
+        }
+    }
+}
@@ -300,6 +300,42 @@ public class PoolRegistryEventTest {
         assertEquals(amount, new BigInteger(poolRegistryEvent.copyOfData()));
     }
 
+    @Test
+    public void withdrawFromPoolsEventTest(){
+        Address pool1 = setupNewPool(4);
+        Address pool2 = setupNewPool(4);
+        Address user1 = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        for (Address pool : new Address[]{pool1, pool2}) {
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("delegate")
+                    .encodeOneAddress(pool)
+                    .toBytes();
+            AvmRule.ResultWrapper result = RULE.call(user1, poolRegistry, nStake(1), txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+        }
+
+        generateBlock(pool1, 10);
+
+        Address[] pools = new Address[]{pool1, pool2};
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("withdrawRewardsFromPools")
+                .encodeOneAddressArray(pools)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(user1, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        BigInteger amount = (BigInteger) result.getDecodedReturnData();
+        assertEquals(5, amount.longValue());
+        assertEquals(1, result.getTransactionResult().logs.size());
+
+        Log poolRegistryEvent = result.getLogs().get(0);
+        assertArrayEquals(LogSizeUtils.truncatePadTopic("ADSWithdrewFromPools".getBytes()), poolRegistryEvent.copyOfTopics().get(0));
+        assertArrayEquals(user1.toByteArray(), poolRegistryEvent.copyOfTopics().get(1));
+        ABIDecoder decoder = new ABIDecoder(poolRegistryEvent.copyOfData());
+        assertArrayEquals(pools, decoder.decodeOneAddressArray());
+        assertArrayEquals(new BigInteger[]{amount, BigInteger.ZERO}, decoder.decodeOneBigIntegerArray());
+    }
+
     private void generateBlock(Address pool, long blockRewards) {
         AionAddress coinbaseAddress = new AionAddress(getCoinbaseAddress(pool).toByteArray());
         RULE.kernel.adjustBalance(coinbaseAddress, BigInteger.valueOf(blockRewards));
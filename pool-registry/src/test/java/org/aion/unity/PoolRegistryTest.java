@@ -1,12 +1,15 @@
 package org.aion.unity;
 
 import avm.Address;
+import org.aion.avm.core.util.ByteArrayWrapper;
 import org.aion.avm.core.util.Helpers;
 import org.aion.avm.core.util.LogSizeUtils;
 import org.aion.avm.embed.AvmRule;
 import org.aion.avm.tooling.ABIUtil;
+import org.aion.avm.userlib.AionBuffer;
 import org.aion.avm.userlib.abi.ABIDecoder;
 import org.aion.avm.userlib.abi.ABIStreamingEncoder;
+import org.aion.data.IDataStore;
 import org.aion.kernel.TestingState;
 import org.aion.types.AionAddress;
 import org.aion.types.Log;
@@ -19,6 +22,8 @@ import org.spongycastle.util.encoders.Hex;
 import java.lang.reflect.Field;
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Scanner;
 
 import static org.junit.Assert.*;
@@ -475,6 +480,264 @@ public class PoolRegistryTest {
         assertEquals(0, amount.longValue());
     }
 
+    @Test
+    public void testWithdrawRewardsFromPools() {
+        Address pool1 = setupNewPool(4);
+        Address pool2 = setupNewPool(4);
+        Address user1 = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        Address user2 = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        for (Address pool : new Address[]{pool1, pool2}) {
+            byte[] txData = ABIUtil.encodeMethodArguments("delegate", pool);
+            AvmRule.ResultWrapper result = RULE.call(user1, poolRegistry, nStake(1), txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+            result = RULE.call(user2, poolRegistry, nStake(1), txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+        }
+
+        generateBlock(pool1, 9);
+        generateBlock(pool2, 18);
+
+        Address[] pools = new Address[]{pool1, pool2};
+        byte[] txData = ABIUtil.encodeMethodArguments("getRewardsForPools", user1, pools);
+        AvmRule.ResultWrapper result = RULE.call(user1, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        BigInteger[] rewards = (BigInteger[]) result.getDecodedReturnData();
+        assertArrayEquals(new BigInteger[]{BigInteger.valueOf(3), BigInteger.valueOf(6)}, rewards);
+
+        // the same as querying each pool
+        txData = ABIUtil.encodeMethodArguments("getRewards", pool2, user1);
+        result = RULE.call(user1, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(rewards[1], result.getDecodedReturnData());
+
+        BigInteger balance = RULE.kernel.getBalance(new AionAddress(user1.toByteArray()));
+        txData = ABIUtil.encodeMethodArguments("withdrawRewardsFromPools", (Object) pools);
+        result = RULE.call(user1, poolRegistry, BigInteger.ZERO, txData, 2_000_000L, 1L);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(BigInteger.valueOf(9), result.getDecodedReturnData());
+        BigInteger energyCost = BigInteger.valueOf(result.getTransactionResult().energyUsed);
+        assertEquals(balance.add(BigInteger.valueOf(9)).subtract(energyCost), RULE.kernel.getBalance(new AionAddress(user1.toByteArray())));
+
+        txData = ABIUtil.encodeMethodArguments("getRewardsForPools", user1, pools);
+        result = RULE.call(user1, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertArrayEquals(new BigInteger[]{BigInteger.ZERO, BigInteger.ZERO}, (BigInteger[]) result.getDecodedReturnData());
+
+        // the other delegator is not affected
+        txData = ABIUtil.encodeMethodArguments("getRewardsForPools", user2, pools);
+        result = RULE.call(user1, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertArrayEquals(new BigInteger[]{BigInteger.valueOf(3), BigInteger.valueOf(6)}, (BigInteger[]) result.getDecodedReturnData());
+
+        // unknown pools are rejected
+        txData = ABIUtil.encodeMethodArguments("withdrawRewardsFromPools", (Object) new Address[]{pool1, user2});
+        result = RULE.call(user2, poolRegistry, BigInteger.ZERO, txData);
+        assertFalse(result.getReceiptStatus().isSuccess());
+    }
+
+    @Test
+    public void testSweepPolicy() {
+        Address pool = setupNewPool(4);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        AionAddress coinbase = new AionAddress(getCoinbaseAddress(pool).toByteArray());
+
+        byte[] txData = ABIUtil.encodeMethodArguments("delegate", pool);
+        AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, nStake(1), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        // owner only, and the values can not be negative
+        txData = ABIUtil.encodeMethodArguments("setSweepPolicy", BigInteger.valueOf(1000), 0L);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertFalse(result.getReceiptStatus().isSuccess());
+        result = RULE.call(pool, poolRegistry, BigInteger.ZERO, ABIUtil.encodeMethodArguments("setSweepPolicy", BigInteger.valueOf(-1), 0L));
+        assertFalse(result.getReceiptStatus().isSuccess());
+        result = RULE.call(pool, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        // the block rewards are credited, but stay in the coinbase address until the threshold is reached
+        generateBlock(pool, 100);
+        txData = ABIUtil.encodeMethodArguments("delegate", pool);
+        result = RULE.call(delegator, poolRegistry, nStake(1), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(BigInteger.valueOf(100), RULE.kernel.getBalance(coinbase));
+
+        generateBlock(pool, 50);
+        txData = ABIUtil.encodeMethodArguments("undelegate", pool, nStake(1), BigInteger.ZERO);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(BigInteger.valueOf(150), RULE.kernel.getBalance(coinbase));
+
+        // credited block rewards are not counted again
+        generateBlock(pool, 10);
+        txData = ABIUtil.encodeMethodArguments("getRewards", pool, delegator);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        BigInteger rewards = (BigInteger) result.getDecodedReturnData();
+        assertEquals(BigInteger.valueOf(48 + 32 + 5), rewards);
+
+        // the coinbase balance is transferred when it is needed to pay out the rewards
+        txData = ABIUtil.encodeMethodArguments("withdrawRewards", pool);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(rewards, result.getDecodedReturnData());
+        assertEquals(BigInteger.ZERO, RULE.kernel.getBalance(coinbase));
+
+        // the threshold is reached
+        generateBlock(pool, 999);
+        txData = ABIUtil.encodeMethodArguments("delegate", pool);
+        result = RULE.call(delegator, poolRegistry, nStake(1), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(BigInteger.valueOf(999), RULE.kernel.getBalance(coinbase));
+        generateBlock(pool, 1);
+        result = RULE.call(delegator, poolRegistry, nStake(1), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(BigInteger.ZERO, RULE.kernel.getBalance(coinbase));
+
+        // the interval has passed since the last transfer
+        txData = ABIUtil.encodeMethodArguments("setSweepPolicy", nStake(1), 10L);
+        result = RULE.call(pool, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        generateBlock(pool, 20);
+        txData = ABIUtil.encodeMethodArguments("delegate", pool);
+        result = RULE.call(delegator, poolRegistry, nStake(1), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(BigInteger.valueOf(20), RULE.kernel.getBalance(coinbase));
+        tweakBlockNumber(getBlockNumber() + 10);
+        result = RULE.call(delegator, poolRegistry, nStake(1), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(BigInteger.ZERO, RULE.kernel.getBalance(coinbase));
+
+        // the operator's commission is paid out of the transferred balance
+        txData = ABIUtil.encodeMethodArguments("withdrawRewards", pool);
+        result = RULE.call(pool, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        txData = ABIUtil.encodeMethodArguments("getOutstandingRewards", pool);
+        result = RULE.call(pool, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        BigInteger outstandingRewards = (BigInteger) result.getDecodedReturnData();
+        assertTrue(outstandingRewards.compareTo(RULE.kernel.getBalance(new AionAddress(poolRegistry.toByteArray()))) <= 0);
+    }
+
+    @Test
+    public void testCommands() {
+        Address pool = setupNewPool(4);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, nStake(1), PoolRegistryCommands.delegate(pool));
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertArrayEquals(LogSizeUtils.truncatePadTopic("ADSDelegated".getBytes()), result.getLogs().get(result.getLogs().size() - 1).copyOfTopics().get(0));
+        byte[] txData = ABIUtil.encodeMethodArguments("getStake", pool, delegator);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertEquals(nStake(1), result.getDecodedReturnData());
+
+        generateBlock(pool, 1000);
+        txData = ABIUtil.encodeMethodArguments("getRewards", pool, delegator);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        BigInteger rewards = (BigInteger) result.getDecodedReturnData();
+        assertTrue(rewards.signum() > 0);
+
+        BigInteger balance = RULE.kernel.getBalance(new AionAddress(delegator.toByteArray()));
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, PoolRegistryCommands.withdrawRewards(pool));
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertNull(result.getDecodedReturnData());
+        BigInteger energyCost = BigInteger.valueOf(result.getTransactionResult().energyUsed);
+        assertEquals(balance.add(rewards).subtract(energyCost), RULE.kernel.getBalance(new AionAddress(delegator.toByteArray())));
+
+        generateBlock(pool, 1000);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, PoolRegistryCommands.redelegateRewards(pool));
+        assertTrue(result.getReceiptStatus().isSuccess());
+        txData = ABIUtil.encodeMethodArguments("getStake", pool, delegator);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(((BigInteger) result.getDecodedReturnData()).compareTo(nStake(1)) > 0);
+
+        // the pending undelegate is finalized with the returned id
+        txData = ABIUtil.encodeMethodArguments("undelegate", pool, nStake(1), BigInteger.ZERO);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        long id = (long) result.getDecodedReturnData();
+        tweakBlockNumber(getBlockNumber() + UNBOND_LOCK_UP_PERIOD);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, PoolRegistryCommands.finalizeUndelegate(id));
+        assertTrue(result.getReceiptStatus().isSuccess());
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, PoolRegistryCommands.finalizeUndelegate(id));
+        assertFalse(result.getReceiptStatus().isSuccess());
+
+        byte[] command = PoolRegistryCommands.finalizeTransfer(0x0102030405060708L);
+        assertArrayEquals(new byte[]{0x32, 0x21, 0x05, 1, 2, 3, 4, 5, 6, 7, 8}, command);
+
+        // the callables' checks apply
+        result = RULE.call(delegator, poolRegistry, BigInteger.ONE, PoolRegistryCommands.withdrawRewards(pool));
+        assertFalse(result.getReceiptStatus().isSuccess());
+        result = RULE.call(delegator, poolRegistry, nStake(1), PoolRegistryCommands.delegate(delegator));
+        assertFalse(result.getReceiptStatus().isSuccess());
+
+        // malformed commands
+        command = PoolRegistryCommands.delegate(pool);
+        result = RULE.call(delegator, poolRegistry, nStake(1), Arrays.copyOf(command, command.length - 1));
+        assertFalse(result.getReceiptStatus().isSuccess());
+        command[2] = 0x7F;
+        result = RULE.call(delegator, poolRegistry, nStake(1), command);
+        assertFalse(result.getReceiptStatus().isSuccess());
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, new byte[]{0x32, 0x21});
+        assertFalse(result.getReceiptStatus().isSuccess());
+    }
+
+    @Test
+    public void testSweepPools() {
+        Address pool1 = setupNewPool(4);
+        Address pool2 = setupNewPool(4);
+        Address pool3 = setupNewPool(4);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        Address[] pools = new Address[]{pool1, pool2, pool3};
+
+        byte[] txData = ABIUtil.encodeMethodArguments("setSweepPolicy", BigInteger.valueOf(1000), 0L);
+        AvmRule.ResultWrapper result = RULE.call(pool2, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        // pool2 has credited block rewards that are still in its coinbase address
+        generateBlock(pool2, 100);
+        for (Address pool : new Address[]{pool1, pool2}) {
+            txData = ABIUtil.encodeMethodArguments("delegate", pool);
+            result = RULE.call(delegator, poolRegistry, nStake(1), txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+        }
+        generateBlock(pool1, 90);
+        generateBlock(pool2, 30);
+
+        txData = ABIUtil.encodeMethodArguments("getRewardsForPools", delegator, pools);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        BigInteger[] rewards = (BigInteger[]) result.getDecodedReturnData();
+
+        txData = ABIUtil.encodeMethodArguments("sweepPools", (Object) pools);
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(BigInteger.valueOf(220), result.getDecodedReturnData());
+        for (Address pool : pools) {
+            assertEquals(BigInteger.ZERO, RULE.kernel.getBalance(new AionAddress(getCoinbaseAddress(pool).toByteArray())));
+        }
+
+        // the block rewards have been distributed, and the rewards of the delegators are not affected
+        txData = ABIUtil.encodeMethodArguments("getOutstandingRewards", pool1);
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(BigInteger.valueOf(90), result.getDecodedReturnData());
+        txData = ABIUtil.encodeMethodArguments("getRewardsForPools", delegator, pools);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertArrayEquals(rewards, (BigInteger[]) result.getDecodedReturnData());
+
+        txData = ABIUtil.encodeMethodArguments("withdrawRewards", pool2);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(rewards[1], result.getDecodedReturnData());
+
+        // unknown pools are rejected
+        txData = ABIUtil.encodeMethodArguments("sweepPools", (Object) new Address[]{pool1, delegator});
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertFalse(result.getReceiptStatus().isSuccess());
+    }
+
     @Test
     public void testUsecaseRedelegate() {
         Address pool = setupNewPool(10);
@@ -532,6 +795,239 @@ public class PoolRegistryTest {
         Assert.assertEquals(0, result.getTransactionResult().logs.size());
     }
 
+    @Test
+    public void testRedelegateWithoutRewardsKeepsBlockRewards() {
+        Address pool = setupNewPool(10);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        generateBlock(pool, 1000);
+
+        // the delegator has no rewards, but the block rewards are moved from the coinbase address
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("redelegateRewards")
+                .encodeOneAddress(pool)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        // the operator is the only delegator of the pool
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getRewards")
+                .encodeOneAddress(pool)
+                .encodeOneAddress(pool)
+                .toBytes();
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(BigInteger.valueOf(1000), result.getDecodedReturnData());
+    }
+
+    @Test
+    public void testGetDelegators() {
+        Address pool = setupNewPool(10);
+        Address[] delegators = new Address[4];
+        for (int i = 0; i < delegators.length; i++) {
+            delegators[i] = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+            byte[] txData = ABIUtil.encodeMethodArguments("delegate", pool);
+            AvmRule.ResultWrapper result = RULE.call(delegators[i], poolRegistry, nStake(1), txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+        }
+        // delegating again does not add the delegator twice
+        byte[] txData = ABIUtil.encodeMethodArguments("delegate", pool);
+        AvmRule.ResultWrapper result = RULE.call(delegators[0], poolRegistry, nStake(1), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        assertArrayEquals(new Address[]{pool, delegators[0], delegators[1]}, getDelegators(pool, 0, 3));
+        assertArrayEquals(new Address[]{delegators[2], delegators[3]}, getDelegators(pool, 3, 3));
+        assertEquals(0, getDelegators(pool, 5, 3).length);
+
+        // the delegator is removed once the stake and the rewards are withdrawn, and the last delegator takes its position
+        txData = ABIUtil.encodeMethodArguments("undelegate", pool, nStake(1), BigInteger.ZERO);
+        result = RULE.call(delegators[1], poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(5, getDelegators(pool, 0, 10).length);
+
+        txData = ABIUtil.encodeMethodArguments("withdrawRewards", pool);
+        result = RULE.call(delegators[1], poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertArrayEquals(new Address[]{pool, delegators[0], delegators[3], delegators[2]}, getDelegators(pool, 0, 10));
+
+        // the last delegator is removed without moving others
+        txData = ABIUtil.encodeMethodArguments("undelegate", pool, nStake(1), BigInteger.ZERO);
+        result = RULE.call(delegators[2], poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        txData = ABIUtil.encodeMethodArguments("withdrawRewards", pool);
+        result = RULE.call(delegators[2], poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertArrayEquals(new Address[]{pool, delegators[0], delegators[3]}, getDelegators(pool, 0, 10));
+
+        // withdrawing without a delegation does not change the list
+        result = RULE.call(delegators[1], poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertArrayEquals(new Address[]{pool, delegators[0], delegators[3]}, getDelegators(pool, 0, 10));
+
+        txData = ABIUtil.encodeMethodArguments("getDelegators", pool, 0, 0);
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertFalse(result.getReceiptStatus().isSuccess());
+    }
+
+    @Test
+    public void testGetDelegatorsLegacyRecord() {
+        Address pool = setupNewPool(10);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        Map<ByteArrayWrapper, byte[]> before = getPoolRegistryStorage();
+        byte[] txData = ABIUtil.encodeMethodArguments("delegate", pool);
+        AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, nStake(1), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        Map<ByteArrayWrapper, byte[]> after = getPoolRegistryStorage();
+
+        // rewrite the delegation as it was stored before the delegator list was introduced:
+        // a record in the legacy layout, no list entry, and a count that does not include the delegator
+        byte[] recordKey = null;
+        byte[] listKey = null;
+        byte[] countKey = null;
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : after.entrySet()) {
+            byte[] key = unwrap(entry.getKey());
+            byte[] value = entry.getValue();
+            byte[] previous = before.get(entry.getKey());
+            if (previous == null && Arrays.equals(delegator.toByteArray(), value)) {
+                listKey = key;
+            } else if (previous == null) {
+                PoolStorageObjects.DelegatorInfo info = decodeDelegatorInfo(value);
+                if (info != null && nStake(1).equals(info.stake) && info.position == 1) {
+                    recordKey = key;
+                }
+            } else if (previous != null && Arrays.equals(new byte[]{1}, previous) && Arrays.equals(new byte[]{2}, value)) {
+                countKey = key;
+            }
+        }
+        assertNotNull(recordKey);
+        assertNotNull(listKey);
+        assertNotNull(countKey);
+
+        PoolStorageObjects.DelegatorInfo info = PoolStorageObjects.DelegatorInfo.from(after.get(new ByteArrayWrapper(recordKey)));
+        AionBuffer legacy = AionBuffer.allocate(32 * 3 + Long.BYTES);
+        legacy.put32ByteInt(info.stake);
+        legacy.put32ByteInt(info.settledRewards);
+        legacy.put32ByteInt(info.startingCrr);
+        legacy.putLong(info.startingCrrBlockNumber);
+        AionAddress contract = new AionAddress(poolRegistry.toByteArray());
+        RULE.kernel.putStorage(contract, recordKey, legacy.getArray());
+        RULE.kernel.removeStorage(contract, listKey);
+        RULE.kernel.putStorage(contract, countKey, new byte[]{1});
+
+        // the legacy record is decoded, but not listed
+        assertEquals(nStake(1), getStake(pool, delegator));
+        assertArrayEquals(new Address[]{pool}, getDelegators(pool, 0, 10));
+
+        // the next write adds the delegator to the list
+        result = RULE.call(delegator, poolRegistry, nStake(1), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(nStake(2), getStake(pool, delegator));
+        assertArrayEquals(new Address[]{pool, delegator}, getDelegators(pool, 0, 10));
+
+        // and the delegator is removed from the list once the stake and the rewards are withdrawn
+        txData = ABIUtil.encodeMethodArguments("undelegate", pool, nStake(2), BigInteger.ZERO);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        txData = ABIUtil.encodeMethodArguments("withdrawRewards", pool);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertArrayEquals(new Address[]{pool}, getDelegators(pool, 0, 10));
+    }
+
+    @Test
+    public void testGetPools() {
+        Address[] pools = new Address[]{setupNewPool(1), setupNewPool(2), setupNewPool(3)};
+
+        // the operator undelegating its self stake breaks the pool
+        byte[] txData = ABIUtil.encodeMethodArguments("undelegate", pools[1], BigInteger.ONE, BigInteger.ZERO);
+        AvmRule.ResultWrapper result = RULE.call(pools[1], poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        ABIDecoder decoder = getPools(0, 2, false);
+        assertEquals(3, decoder.decodeOneInteger());
+        assertArrayEquals(new Address[]{pools[0], pools[1]}, decoder.decodeOneAddressArray());
+        assertTrue(Arrays.equals(new boolean[]{true, false}, decoder.decodeOneBooleanArray()));
+
+        decoder = getPools(2, 2, false);
+        assertEquals(3, decoder.decodeOneInteger());
+        assertArrayEquals(new Address[]{pools[2]}, decoder.decodeOneAddressArray());
+        assertTrue(Arrays.equals(new boolean[]{true}, decoder.decodeOneBooleanArray()));
+
+        decoder = getPools(0, 10, true);
+        assertEquals(3, decoder.decodeOneInteger());
+        assertArrayEquals(new Address[]{pools[0], pools[2]}, decoder.decodeOneAddressArray());
+        assertTrue(Arrays.equals(new boolean[]{true, true}, decoder.decodeOneBooleanArray()));
+
+        decoder = getPools(3, 10, false);
+        assertEquals(3, decoder.decodeOneInteger());
+        assertEquals(0, decoder.decodeOneAddressArray().length);
+        assertEquals(0, decoder.decodeOneBooleanArray().length);
+    }
+
+    @Test
+    public void testGetPoolInfos() {
+        Address pool1 = setupNewPool(1);
+        Address pool2 = setupNewPool(2);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        byte[] txData = ABIUtil.encodeMethodArguments("delegate", pool1);
+        AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, nStake(2), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        txData = ABIUtil.encodeMethodArguments("transferDelegation", pool1, pool2, nStake(1), BigInteger.ZERO);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        txData = ABIUtil.encodeMethodArguments("getPoolInfos", (Object) new Address[]{pool1, pool2});
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        ABIDecoder decoder = new ABIDecoder((byte[]) result.getDecodedReturnData());
+
+        assertEquals(getCoinbaseAddress(pool1), decoder.decodeOneAddress());
+        assertEquals(10000, decoder.decodeOneInteger());
+        assertTrue(decoder.decodeOneBoolean());
+        assertEquals(nStake(2), decoder.decodeOneBigInteger());
+        assertEquals(BigInteger.ZERO, decoder.decodeOneBigInteger());
+        assertArrayEquals(new byte[32], decoder.decodeOneByteArray());
+        assertArrayEquals("https://".getBytes(), decoder.decodeOneByteArray());
+
+        assertEquals(getCoinbaseAddress(pool2), decoder.decodeOneAddress());
+        assertEquals(20000, decoder.decodeOneInteger());
+        assertTrue(decoder.decodeOneBoolean());
+        assertEquals(nStake(1), decoder.decodeOneBigInteger());
+        assertEquals(nStake(1), decoder.decodeOneBigInteger());
+        assertArrayEquals(new byte[32], decoder.decodeOneByteArray());
+        assertArrayEquals("https://".getBytes(), decoder.decodeOneByteArray());
+
+        // the result is the same as the single pool query
+        txData = ABIUtil.encodeMethodArguments("getPoolInfo", pool2);
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        decoder = new ABIDecoder((byte[]) result.getDecodedReturnData());
+        assertEquals(getCoinbaseAddress(pool2), decoder.decodeOneAddress());
+        assertEquals(20000, decoder.decodeOneInteger());
+
+        // unknown pools are rejected
+        txData = ABIUtil.encodeMethodArguments("getPoolInfos", (Object) new Address[]{pool1, delegator});
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertFalse(result.getReceiptStatus().isSuccess());
+    }
+
+    private ABIDecoder getPools(int cursor, int limit, boolean onlyActive) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getPools", cursor, limit, onlyActive);
+        AvmRule.ResultWrapper result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        return new ABIDecoder((byte[]) result.getDecodedReturnData());
+    }
+
+    private Address[] getDelegators(Address pool, int cursor, int limit) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getDelegators", pool, cursor, limit);
+        AvmRule.ResultWrapper result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        return (Address[]) result.getDecodedReturnData();
+    }
+
     @Test
     public void testSelfStake() {
         Address pool = setupNewPool(4);
@@ -1441,6 +1937,329 @@ public class PoolRegistryTest {
         Assert.assertEquals(-1, result.getDecodedReturnData());
     }
 
+    @Test
+    public void testFinalizeUndelegates() {
+        Address pool = setupNewPool(10);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        BigInteger unstake = nStake(1);
+        BigInteger fee = BigInteger.TEN.pow(10);
+
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("delegate")
+                .encodeOneAddress(pool)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, nStake(3), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("undelegate")
+                .encodeOneAddress(pool)
+                .encodeOneBigInteger(unstake)
+                .encodeOneBigInteger(fee)
+                .toBytes();
+        long[] ids = new long[3];
+        for (int i = 0; i < 2; i++) {
+            result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+            ids[i] = (long) result.getDecodedReturnData();
+        }
+
+        tweakBlockNumber(getBlockNumber() + UNBOND_LOCK_UP_PERIOD);
+
+        // still in the lock-up period
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        ids[2] = (long) result.getDecodedReturnData();
+
+        BigInteger delegatorBalance = RULE.kernel.getBalance(new AionAddress(delegator.toByteArray()));
+        BigInteger preminedBalance = RULE.kernel.getBalance(new AionAddress(preminedAddress.toByteArray()));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeUndelegates")
+                .encodeOneLongArray(ids)
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        BigInteger twoFees = fee.multiply(BigInteger.TWO);
+        Assert.assertEquals(delegatorBalance.add(unstake.multiply(BigInteger.TWO)).subtract(twoFees),
+                RULE.kernel.getBalance(new AionAddress(delegator.toByteArray())));
+        Assert.assertEquals(preminedBalance.add(twoFees).subtract(BigInteger.valueOf(result.getTransactionResult().energyUsed)),
+                RULE.kernel.getBalance(new AionAddress(preminedAddress.toByteArray())));
+
+        // the single variant still reverts for the immature id
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeUndelegate")
+                .encodeOneLong(ids[2])
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isFailed());
+
+        tweakBlockNumber(getBlockNumber() + UNBOND_LOCK_UP_PERIOD);
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+    }
+
+    @Test
+    public void testFinalizeTransfers() {
+        Address pool1 = setupNewPool(10);
+        Address pool2 = setupNewPool(5);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        BigInteger transferAmount = nStake(1);
+        BigInteger fee = BigInteger.TEN.pow(10);
+
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("delegate")
+                .encodeOneAddress(pool1)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, nStake(3), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("transferDelegation")
+                .encodeOneAddress(pool1)
+                .encodeOneAddress(pool2)
+                .encodeOneBigInteger(transferAmount)
+                .encodeOneBigInteger(fee)
+                .toBytes();
+        long[] ids = new long[3];
+        for (int i = 0; i < 2; i++) {
+            result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+            ids[i] = (long) result.getDecodedReturnData();
+        }
+
+        // the first transfers are not matured yet, so they are not finalized by the next transfer of the delegator
+        tweakBlockNumber(getBlockNumber() + 6 * 5);
+
+        // still in the lock-up period
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        ids[2] = (long) result.getDecodedReturnData();
+
+        tweakBlockNumber(getBlockNumber() + 6 * 5);
+
+        BigInteger preminedBalance = RULE.kernel.getBalance(new AionAddress(preminedAddress.toByteArray()));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeTransfers")
+                .encodeOneLongArray(ids)
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        BigInteger twoFees = fee.multiply(BigInteger.TWO);
+        Assert.assertEquals(preminedBalance.add(twoFees).subtract(BigInteger.valueOf(result.getTransactionResult().energyUsed)),
+                RULE.kernel.getBalance(new AionAddress(preminedAddress.toByteArray())));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getTotalStake")
+                .encodeOneAddress(pool2)
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        BigInteger[] totalStake = (BigInteger[]) result.getDecodedReturnData();
+        assertEquals(nStake(1).add(transferAmount.multiply(BigInteger.TWO)).subtract(twoFees), totalStake[0]);
+        assertEquals(transferAmount.subtract(fee), totalStake[1]);
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getStake")
+                .encodeOneAddress(pool2)
+                .encodeOneAddress(delegator)
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(transferAmount.multiply(BigInteger.TWO).subtract(twoFees), result.getDecodedReturnData());
+
+        // the matured transfer is finalized, the finalized ones are skipped
+        tweakBlockNumber(getBlockNumber() + 6 * 10);
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeTransfers")
+                .encodeOneLongArray(ids)
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getStake")
+                .encodeOneAddress(pool2)
+                .encodeOneAddress(delegator)
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(transferAmount.multiply(BigInteger.valueOf(3)).subtract(fee.multiply(BigInteger.valueOf(3))), result.getDecodedReturnData());
+    }
+
+    @Test
+    public void testAutoFinalizeTransfers() {
+        Address pool1 = setupNewPool(10);
+        Address pool2 = setupNewPool(5);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        BigInteger transferAmount = nStake(1);
+        BigInteger fee = BigInteger.TEN.pow(10);
+        BigInteger remaining = transferAmount.subtract(fee);
+
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("delegate")
+                .encodeOneAddress(pool1)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, nStake(4), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("transferDelegation")
+                .encodeOneAddress(pool1)
+                .encodeOneAddress(pool2)
+                .encodeOneBigInteger(transferAmount)
+                .encodeOneBigInteger(fee)
+                .toBytes();
+        long[] ids = new long[4];
+        for (int i = 0; i < ids.length; i++) {
+            result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+            ids[i] = (long) result.getDecodedReturnData();
+        }
+
+        // interactions during the lock-up period do not finalize the transfers
+        byte[] withdrawData = new ABIStreamingEncoder()
+                .encodeOneString("withdrawRewards")
+                .encodeOneAddress(pool1)
+                .toBytes();
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, withdrawData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        byte[] totalStakeData = new ABIStreamingEncoder()
+                .encodeOneString("getTotalStake")
+                .encodeOneAddress(pool2)
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, totalStakeData);
+        assertEquals(remaining.multiply(BigInteger.valueOf(4)), ((BigInteger[]) result.getDecodedReturnData())[1]);
+
+        tweakBlockNumber(getBlockNumber() + 6 * 10);
+
+        // the next interaction of the initiator finalizes a bounded number of matured transfers, and the fees are paid to the initiator
+        BigInteger delegatorBalance = RULE.kernel.getBalance(new AionAddress(delegator.toByteArray()));
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, withdrawData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertEquals(delegatorBalance.add(fee.multiply(BigInteger.valueOf(3))).subtract(BigInteger.valueOf(result.getTransactionResult().energyUsed)),
+                RULE.kernel.getBalance(new AionAddress(delegator.toByteArray())));
+
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, totalStakeData);
+        BigInteger[] totalStake = (BigInteger[]) result.getDecodedReturnData();
+        assertEquals(nStake(1).add(remaining.multiply(BigInteger.valueOf(3))), totalStake[0]);
+        assertEquals(remaining, totalStake[1]);
+
+        // the auto-finalized transfers cannot be finalized again
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeTransfer")
+                .encodeOneLong(ids[0])
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isFailed());
+
+        // the remaining transfer is finalized by id, its queue entry is dropped on the next interaction
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeTransfer")
+                .encodeOneLong(ids[3])
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("delegate")
+                .encodeOneAddress(pool2)
+                .toBytes();
+        result = RULE.call(delegator, poolRegistry, BigInteger.ONE, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getStake")
+                .encodeOneAddress(pool2)
+                .encodeOneAddress(delegator)
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertEquals(remaining.multiply(BigInteger.valueOf(4)).add(BigInteger.ONE), result.getDecodedReturnData());
+    }
+
+    @Test
+    public void testFinalizeTransfersToBrokenPool() {
+        Address pool1 = setupNewPool(10);
+        Address pool2 = setupNewPool(5);
+        Address pool3 = setupNewPool(5);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        BigInteger transferAmount = nStake(1);
+
+        byte[] txData = ABIUtil.encodeMethodArguments("delegate", pool1);
+        assertTrue(RULE.call(delegator, poolRegistry, nStake(2), txData).getReceiptStatus().isSuccess());
+        long[] ids = new long[2];
+        Address[] toPools = new Address[]{pool2, pool3};
+        for (int i = 0; i < ids.length; i++) {
+            txData = ABIUtil.encodeMethodArguments("transferDelegation", pool1, toPools[i], transferAmount, BigInteger.ZERO);
+            AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+            ids[i] = (long) result.getDecodedReturnData();
+        }
+
+        breakPool(pool3);
+        tweakBlockNumber(getBlockNumber() + 6 * 10);
+
+        // the transfer to the broken pool is skipped, the rest of the batch is finalized
+        txData = ABIUtil.encodeMethodArguments("finalizeTransfers", ids);
+        assertTrue(RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData).getReceiptStatus().isSuccess());
+        assertEquals(transferAmount, getStake(pool2, delegator));
+        assertEquals(BigInteger.ZERO, getStake(pool3, delegator));
+        txData = ABIUtil.encodeMethodArguments("getTotalStake", pool3);
+        assertEquals(transferAmount, ((BigInteger[]) RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData).getDecodedReturnData())[1]);
+
+        // the skipped transfer is finalized once the pool can take the stake
+        txData = ABIUtil.encodeMethodArguments("delegate", pool3);
+        assertTrue(RULE.call(pool3, poolRegistry, nStake(1), txData).getReceiptStatus().isSuccess());
+        txData = ABIUtil.encodeMethodArguments("finalizeTransfers", ids);
+        assertTrue(RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData).getReceiptStatus().isSuccess());
+        assertEquals(transferAmount, getStake(pool3, delegator));
+    }
+
+    @Test
+    public void testAutoFinalizeTransferToBrokenPool() {
+        Address pool1 = setupNewPool(10);
+        Address pool2 = setupNewPool(5);
+        Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        BigInteger transferAmount = nStake(1);
+
+        byte[] txData = ABIUtil.encodeMethodArguments("delegate", pool1);
+        assertTrue(RULE.call(delegator, poolRegistry, nStake(3), txData).getReceiptStatus().isSuccess());
+        txData = ABIUtil.encodeMethodArguments("transferDelegation", pool1, pool2, transferAmount, BigInteger.ZERO);
+        AvmRule.ResultWrapper result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        long id = (long) result.getDecodedReturnData();
+
+        breakPool(pool2);
+        tweakBlockNumber(getBlockNumber() + 6 * 10);
+        generateBlock(pool1, 1000);
+
+        // the matured transfer cannot be completed, the delegator's operations on other pools go through
+        txData = ABIUtil.encodeMethodArguments("withdrawRewards", pool1);
+        result = RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        assertTrue(((BigInteger) result.getDecodedReturnData()).signum() > 0);
+        txData = ABIUtil.encodeMethodArguments("undelegate", pool1, nStake(1), BigInteger.ZERO);
+        assertTrue(RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData).getReceiptStatus().isSuccess());
+        assertEquals(nStake(1), getStake(pool1, delegator));
+        assertEquals(BigInteger.ZERO, getStake(pool2, delegator));
+
+        // the transfer stays pending and can be finalized once the pool can take the stake
+        txData = ABIUtil.encodeMethodArguments("finalizeTransfer", id);
+        assertFalse(RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData).getReceiptStatus().isSuccess());
+        txData = ABIUtil.encodeMethodArguments("delegate", pool2);
+        assertTrue(RULE.call(pool2, poolRegistry, nStake(1), txData).getReceiptStatus().isSuccess());
+        txData = ABIUtil.encodeMethodArguments("finalizeTransfer", id);
+        assertTrue(RULE.call(delegator, poolRegistry, BigInteger.ZERO, txData).getReceiptStatus().isSuccess());
+        assertEquals(transferAmount, getStake(pool2, delegator));
+    }
+
     @Test
     public void testFallback(){
         Assert.assertTrue(RULE.balanceTransfer(preminedAddress, poolRegistry, BigInteger.TEN, 50000L, 1L).getReceiptStatus().isFailed());
@@ -1470,6 +2289,36 @@ public class PoolRegistryTest {
         tweakBlockNumber(getBlockNumber() + 1);
     }
 
+    @SuppressWarnings("unchecked")
+    private Map<ByteArrayWrapper, byte[]> getPoolRegistryStorage() {
+        try {
+            Field f = TestingState.class.getDeclaredField("dataStore");
+            f.setAccessible(true);
+            IDataStore dataStore = (IDataStore) f.get(RULE.kernel);
+            return new HashMap<>(dataStore.openAccount(poolRegistry.toByteArray()).getStorageEntries());
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static PoolStorageObjects.DelegatorInfo decodeDelegatorInfo(byte[] value) {
+        try {
+            return PoolStorageObjects.DelegatorInfo.from(value);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static byte[] unwrap(ByteArrayWrapper wrapper) {
+        try {
+            Field f = ByteArrayWrapper.class.getDeclaredField("data");
+            f.setAccessible(true);
+            return (byte[]) f.get(wrapper);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private void tweakBlockNumber(long number) {
         try {
             Field f = TestingState.class.getDeclaredField("blockNumber");
@@ -1481,6 +2330,21 @@ public class PoolRegistryTest {
             throw new RuntimeException(e);
         }
     }
+    private BigInteger getStake(Address pool, Address delegator) {
+        byte[] txData = ABIUtil.encodeMethodArguments("getStake", pool, delegator);
+        AvmRule.ResultWrapper result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        return (BigInteger) result.getDecodedReturnData();
+    }
+
+    // the operator undelegates the self stake, which puts the pool into a broken state
+    private void breakPool(Address pool) {
+        byte[] txData = ABIUtil.encodeMethodArguments("undelegate", pool, getStake(pool, pool), BigInteger.ZERO);
+        assertTrue(RULE.call(pool, poolRegistry, BigInteger.ZERO, txData).getReceiptStatus().isSuccess());
+        txData = ABIUtil.encodeMethodArguments("isActive", pool);
+        assertEquals(false, RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData).getDecodedReturnData());
+    }
+
     private Address getCoinbaseAddress(Address pool){
         byte[] txData = new ABIStreamingEncoder()
                 .encodeOneString("getCoinbaseAddress")
@@ -0,0 +1,284 @@
+package org.aion.unity;
+
+import avm.Address;
+import org.aion.avm.core.AvmTransactionUtil;
+import org.aion.avm.core.ExecutionType;
+import org.aion.avm.core.FutureResult;
+import org.aion.avm.core.util.Helpers;
+import org.aion.avm.embed.AvmRule;
+import org.aion.avm.tooling.ABIUtil;
+import org.aion.types.AionAddress;
+import org.aion.types.InternalTransaction;
+import org.aion.types.Transaction;
+import org.aion.types.TransactionResult;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures how well transactions to different pools run concurrently in the AVM's parallel executor.
+ * <p>
+ * The executor locks every address a transaction touches, so two transactions conflict as soon as they call the same contract.
+ * Each workload sends one transaction per pool, from distinct senders, and is executed in two modes:
+ * - serial: one transaction per {@code AvmImpl.run} call;
+ * - batch: all transactions in a single {@code AvmImpl.run} call, executed by the AVM's executor threads.
+ * The batch throughput depends on the number of available processors, the critical path of the batch does not.
+ * <p>
+ * Two layouts are compared:
+ * - shared: all pools are registered in a single PoolRegistry (the production layout);
+ * - perPool: every pool is registered in its own PoolRegistry, which is the best case for a per-pool shard contract
+ * since no front door contract is shared. All layouts still share the StakerRegistry.
+ * Plain balance transfers between distinct accounts give the executor's upper bound.
+ * <p>
+ * The results are written to target/energy-report/PoolRegistryThroughput.json.
+ * This class is not part of the default test run, use: mvn test -Dtest=PoolRegistryThroughputBenchmark
+ */
+public class PoolRegistryThroughputBenchmark {
+
+    private static BigInteger ENOUGH_BALANCE_TO_TRANSACT = BigInteger.TEN.pow(18 + 5);
+    private static BigInteger MIN_SELF_STAKE = new BigInteger("1000000000000000000000");
+    private static long COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD = 6 * 60 * 24 * 7;
+    private static BigInteger DELEGATION = BigInteger.TEN.pow(18);
+    private static BigInteger BLOCK_REWARDS = new BigInteger("4500000000000000000");
+    private static int POOL_COUNT = 16;
+    private static int ROUNDS = 5;
+    private static long ENERGY_LIMIT = 5_000_000L;
+
+    private static List<String> entries = new ArrayList<>();
+
+    @Rule
+    public AvmRule RULE = new AvmRule(false);
+
+    // default address with balance
+    private Address preminedAddress = RULE.getPreminedAccount();
+
+    // contract address
+    private Address stakerRegistry;
+    private byte[] poolRegistryBytes;
+
+    @Before
+    public void setup() {
+        try (Scanner s = new Scanner(PoolRegistryTest.class.getResourceAsStream("StakerRegistry.txt"))) {
+            String contract = s.nextLine();
+            AvmRule.ResultWrapper result = RULE.deploy(preminedAddress, BigInteger.ZERO, Hex.decode(contract));
+            assertTrue(result.getReceiptStatus().isSuccess());
+            stakerRegistry = result.getDappAddress();
+        }
+
+        Address placeHolder = new Address(Helpers.hexStringToBytes("0000000000000000000000000000000000000000000000000000000000000000"));
+        byte[] coinbaseArguments = ABIUtil.encodeDeploymentArguments(placeHolder);
+        byte[] coinbaseBytes = RULE.getDappBytes(PoolCoinbase.class, coinbaseArguments, 1);
+
+        byte[] arguments = ABIUtil.encodeDeploymentArguments(stakerRegistry, MIN_SELF_STAKE, BigInteger.ONE, COMMISSION_RATE_CHANGE_TIME_LOCK_PERIOD, coinbaseBytes);
+        poolRegistryBytes = RULE.getDappBytes(PoolRegistry.class, arguments, 1, PoolStorageObjects.class, PoolRewardsStateMachine.class, PoolRegistryEvents.class, PoolRegistryStorage.class);
+    }
+
+    @AfterClass
+    public static void writeReport() {
+        Path path = Paths.get("target/energy-report", "PoolRegistryThroughput.json");
+        String json = "[\n" + String.join(",\n", entries) + "\n]\n";
+        try {
+            Files.createDirectories(path.getParent());
+            Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write the throughput report.", e);
+        }
+    }
+
+    @Test
+    public void benchmarkBalanceTransfer() {
+        List<Address> senders = new ArrayList<>();
+        List<Address> recipients = new ArrayList<>();
+        for (int i = 0; i < POOL_COUNT; i++) {
+            senders.add(RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT));
+            recipients.add(RULE.getRandomAddress(BigInteger.ZERO));
+        }
+        measure("balanceTransfer", "distinct", () -> {
+            Transaction[] transactions = new Transaction[POOL_COUNT];
+            for (int i = 0; i < POOL_COUNT; i++) {
+                transactions[i] = transaction(senders.get(i), recipients.get(i), BigInteger.ONE, new byte[0]);
+            }
+            return transactions;
+        });
+    }
+
+    @Test
+    public void benchmarkDelegate() {
+        for (boolean shared : new boolean[]{true, false}) {
+            List<Pool> pools = setupPools(shared);
+            measure("delegate", layout(shared), () -> {
+                Transaction[] transactions = new Transaction[POOL_COUNT];
+                for (int i = 0; i < POOL_COUNT; i++) {
+                    Pool pool = pools.get(i);
+                    transactions[i] = transaction(pool.delegator, pool.registry, DELEGATION, ABIUtil.encodeMethodArguments("delegate", pool.address));
+                }
+                return transactions;
+            });
+        }
+    }
+
+    @Test
+    public void benchmarkWithdrawRewards() {
+        for (boolean shared : new boolean[]{true, false}) {
+            List<Pool> pools = setupPools(shared);
+            measure("withdrawRewards", layout(shared), () -> {
+                Transaction[] transactions = new Transaction[POOL_COUNT];
+                for (int i = 0; i < POOL_COUNT; i++) {
+                    Pool pool = pools.get(i);
+                    RULE.kernel.adjustBalance(new AionAddress(pool.coinbaseAddress.toByteArray()), BLOCK_REWARDS);
+                    transactions[i] = transaction(pool.delegator, pool.registry, BigInteger.ZERO, ABIUtil.encodeMethodArguments("withdrawRewards", pool.address));
+                }
+                return transactions;
+            });
+        }
+    }
+
+    private static String layout(boolean shared) {
+        return shared ? "shared" : "perPool";
+    }
+
+    /**
+     * Runs the generated workload ROUNDS times in each mode and records the best throughput of each mode.
+     * The first round of each mode is a warm-up and is not recorded.
+     * The critical path is the longest chain of transactions in the batch where each one touches an address that an earlier one touched,
+     * these transactions cannot run concurrently whatever the number of executor threads is.
+     */
+    private void measure(String workload, String layout, Workload generator) {
+        long serial = Long.MAX_VALUE;
+        long batch = Long.MAX_VALUE;
+        int criticalPath = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (Transaction transaction : generator.next()) {
+                run(new Transaction[]{transaction});
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round > 0 && elapsed < serial) {
+                serial = elapsed;
+            }
+
+            Transaction[] transactions = generator.next();
+            start = System.nanoTime();
+            FutureResult[] results = run(transactions);
+            elapsed = System.nanoTime() - start;
+            if (round > 0 && elapsed < batch) {
+                batch = elapsed;
+            }
+            criticalPath = getCriticalPath(transactions, results);
+        }
+        double serialTps = POOL_COUNT * 1e9 / serial;
+        double batchTps = POOL_COUNT * 1e9 / batch;
+        entries.add(String.format("  {\"workload\": \"%s\", \"layout\": \"%s\", \"transactions\": %d, \"criticalPath\": %d, \"serialTps\": %.1f, \"batchTps\": %.1f, \"threads\": %d}",
+                workload, layout, POOL_COUNT, criticalPath, serialTps, batchTps, Runtime.getRuntime().availableProcessors()));
+        System.out.println(String.format("%s [%s] criticalPath=%d/%d serial=%.1f tx/s batch=%.1f tx/s", workload, layout, criticalPath, POOL_COUNT, serialTps, batchTps));
+    }
+
+    private FutureResult[] run(Transaction[] transactions) {
+        RULE.kernel.generateBlock();
+        FutureResult[] results = RULE.avm.run(RULE.kernel, transactions, ExecutionType.ASSUME_MAINCHAIN, RULE.kernel.getBlockNumber() - 1);
+        checkResults(results);
+        return results;
+    }
+
+    private static int getCriticalPath(Transaction[] transactions, FutureResult[] results) {
+        List<Set<AionAddress>> touched = new ArrayList<>();
+        int[] depth = new int[transactions.length];
+        int criticalPath = 0;
+        for (int i = 0; i < transactions.length; i++) {
+            Set<AionAddress> addresses = new HashSet<>();
+            addresses.add(transactions[i].senderAddress);
+            addresses.add(transactions[i].destinationAddress);
+            for (InternalTransaction internalTransaction : results[i].getResult().internalTransactions) {
+                addresses.add(internalTransaction.sender);
+                addresses.add(internalTransaction.destination);
+            }
+            depth[i] = 1;
+            for (int j = 0; j < i; j++) {
+                if (depth[j] >= depth[i] && !Collections.disjoint(touched.get(j), addresses)) {
+                    depth[i] = depth[j] + 1;
+                }
+            }
+            touched.add(addresses);
+            criticalPath = Math.max(criticalPath, depth[i]);
+        }
+        return criticalPath;
+    }
+
+    private static void checkResults(FutureResult[] results) {
+        for (FutureResult result : results) {
+            TransactionResult transactionResult = result.getResult();
+            if (!transactionResult.transactionStatus.isSuccess()) {
+                throw new IllegalStateException("Transaction failed: " + transactionResult);
+            }
+        }
+    }
+
+    private Transaction transaction(Address sender, Address destination, BigInteger value, byte[] data) {
+        AionAddress from = new AionAddress(sender.toByteArray());
+        return AvmTransactionUtil.call(from, new AionAddress(destination.toByteArray()), RULE.kernel.getNonce(from), value, data, ENERGY_LIMIT, 1L);
+    }
+
+    /**
+     * Registers POOL_COUNT pools, either in one shared PoolRegistry or each in its own PoolRegistry,
+     * and delegates to every pool from a distinct delegator.
+     */
+    private List<Pool> setupPools(boolean shared) {
+        List<Pool> pools = new ArrayList<>();
+        Address registry = null;
+        for (int i = 0; i < POOL_COUNT; i++) {
+            if (registry == null || !shared) {
+                AvmRule.ResultWrapper result = RULE.deploy(preminedAddress, BigInteger.ZERO, poolRegistryBytes);
+                assertTrue(result.getReceiptStatus().isSuccess());
+                registry = result.getDappAddress();
+            }
+            Address poolAddress = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+            byte[] txData = ABIUtil.encodeMethodArguments("registerPool", poolAddress, 100000, "https://".getBytes(), new byte[32]);
+            AvmRule.ResultWrapper result = RULE.call(poolAddress, registry, MIN_SELF_STAKE, txData, ENERGY_LIMIT, 1L);
+            assertTrue(result.getReceiptStatus().isSuccess());
+
+            Address delegator = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+            result = RULE.call(delegator, registry, DELEGATION, ABIUtil.encodeMethodArguments("delegate", poolAddress), ENERGY_LIMIT, 1L);
+            assertTrue(result.getReceiptStatus().isSuccess());
+
+            result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, ABIUtil.encodeMethodArguments("getCoinbaseAddress", poolAddress));
+            assertTrue(result.getReceiptStatus().isSuccess());
+            pools.add(new Pool(registry, poolAddress, (Address) result.getDecodedReturnData(), delegator));
+        }
+        return pools;
+    }
+
+    private interface Workload {
+        Transaction[] next();
+    }
+
+    private static class Pool {
+        private final Address registry;
+        private final Address address;
+        private final Address coinbaseAddress;
+        private final Address delegator;
+
+        private Pool(Address registry, Address address, Address coinbaseAddress, Address delegator) {
+            this.registry = registry;
+            this.address = address;
+            this.coinbaseAddress = coinbaseAddress;
+            this.delegator = delegator;
+        }
+    }
+}
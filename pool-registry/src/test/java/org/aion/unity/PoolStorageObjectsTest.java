@@ -0,0 +1,122 @@
+package org.aion.unity;
+
+import avm.Address;
+import org.aion.avm.core.util.Helpers;
+import org.aion.avm.userlib.AionBuffer;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PoolStorageObjectsTest {
+
+    private static final Address POOL = new Address(Helpers.hexStringToBytes("a0000000000000000000000000000000000000000000000000000000000000a1"));
+    private static final Address DELEGATOR = new Address(Helpers.hexStringToBytes("a0000000000000000000000000000000000000000000000000000000000000a2"));
+    private static final Address COINBASE = new Address(Helpers.hexStringToBytes("a0000000000000000000000000000000000000000000000000000000000000a3"));
+    private static final BigInteger LARGE_VALUE = BigInteger.ONE.shiftLeft(200).add(BigInteger.valueOf(12345));
+
+    @Test
+    public void testDelegatorInfoCompactEncoding() {
+        PoolStorageObjects.DelegatorInfo info = new PoolStorageObjects.DelegatorInfo();
+        info.stake = new BigInteger("1000000000000000000000");
+        info.settledRewards = LARGE_VALUE;
+        info.startingCrrBlockNumber = 100L;
+        info.position = 7;
+
+        byte[] serialized = info.serialize();
+        // version byte, three length-prefixed integers, the block number and the position
+        assertEquals(1 + (1 + 9) + (1 + 26) + (1 + 1) + Long.BYTES + Integer.BYTES, serialized.length);
+
+        PoolStorageObjects.DelegatorInfo decoded = PoolStorageObjects.DelegatorInfo.from(serialized);
+        assertEquals(info.stake, decoded.stake);
+        assertEquals(info.settledRewards, decoded.settledRewards);
+        assertEquals(BigInteger.ZERO, decoded.startingCrr);
+        assertEquals(100L, decoded.startingCrrBlockNumber);
+        assertEquals(7, decoded.position);
+    }
+
+    @Test
+    public void testDelegatorInfoLegacyEncoding() {
+        AionBuffer buffer = AionBuffer.allocate(32 * 3 + Long.BYTES);
+        buffer.put32ByteInt(BigInteger.TEN);
+        buffer.put32ByteInt(LARGE_VALUE);
+        buffer.put32ByteInt(BigInteger.ONE);
+        buffer.putLong(5L);
+
+        PoolStorageObjects.DelegatorInfo decoded = PoolStorageObjects.DelegatorInfo.from(buffer.getArray());
+        assertEquals(BigInteger.TEN, decoded.stake);
+        assertEquals(LARGE_VALUE, decoded.settledRewards);
+        assertEquals(BigInteger.ONE, decoded.startingCrr);
+        assertEquals(5L, decoded.startingCrrBlockNumber);
+        assertEquals(-1, decoded.position);
+    }
+
+    @Test
+    public void testPoolRewardsEncoding() {
+        PoolStorageObjects.PoolRewards rewards = new PoolStorageObjects.PoolRewards(COINBASE, 50000);
+        rewards.accumulatedStake = LARGE_VALUE;
+        rewards.currentCRR = BigInteger.valueOf(128);
+        rewards.pendingStake = BigInteger.TEN;
+        rewards.isActive = false;
+
+        byte[] serialized = rewards.serialize();
+        assertTrue(serialized.length < 32 * 6 + Address.LENGTH + Integer.BYTES + 1);
+        assertPoolRewardsEquals(rewards, PoolStorageObjects.PoolRewards.from(serialized));
+
+        AionBuffer buffer = AionBuffer.allocate(32 * 6 + Address.LENGTH + Integer.BYTES + 1);
+        buffer.put32ByteInt(rewards.accumulatedStake);
+        buffer.put32ByteInt(rewards.accumulatedCommission);
+        buffer.put32ByteInt(rewards.outstandingRewards);
+        buffer.put32ByteInt(rewards.currentCRR);
+        buffer.put32ByteInt(rewards.accumulatedBlockRewards);
+        buffer.put32ByteInt(rewards.pendingStake);
+        buffer.putAddress(COINBASE);
+        buffer.putInt(50000);
+        buffer.putBoolean(false);
+        assertPoolRewardsEquals(rewards, PoolStorageObjects.PoolRewards.from(buffer.getArray()));
+
+        rewards.unsweptBlockRewards = BigInteger.valueOf(7);
+        rewards.sweepThreshold = LARGE_VALUE;
+        rewards.sweepInterval = 360;
+        rewards.lastSweepBlockNumber = 1234;
+        assertPoolRewardsEquals(rewards, PoolStorageObjects.PoolRewards.from(rewards.serialize()));
+    }
+
+    @Test
+    public void testStakeTransferEncoding() {
+        PoolStorageObjects.StakeTransfer transfer = new PoolStorageObjects.StakeTransfer(DELEGATOR, POOL, COINBASE, LARGE_VALUE);
+        assertStakeTransferEquals(transfer, PoolStorageObjects.StakeTransfer.from(transfer.serialize()));
+
+        AionBuffer buffer = AionBuffer.allocate(Address.LENGTH * 3 + 32);
+        buffer.putAddress(DELEGATOR);
+        buffer.putAddress(POOL);
+        buffer.putAddress(COINBASE);
+        buffer.put32ByteInt(LARGE_VALUE);
+        assertStakeTransferEquals(transfer, PoolStorageObjects.StakeTransfer.from(buffer.getArray()));
+    }
+
+    private static void assertPoolRewardsEquals(PoolStorageObjects.PoolRewards expected, PoolStorageObjects.PoolRewards actual) {
+        assertEquals(expected.accumulatedStake, actual.accumulatedStake);
+        assertEquals(expected.accumulatedCommission, actual.accumulatedCommission);
+        assertEquals(expected.outstandingRewards, actual.outstandingRewards);
+        assertEquals(expected.currentCRR, actual.currentCRR);
+        assertEquals(expected.accumulatedBlockRewards, actual.accumulatedBlockRewards);
+        assertEquals(expected.pendingStake, actual.pendingStake);
+        assertEquals(expected.coinbaseAddress, actual.coinbaseAddress);
+        assertEquals(expected.commissionRate, actual.commissionRate);
+        assertEquals(expected.isActive, actual.isActive);
+        assertEquals(expected.unsweptBlockRewards, actual.unsweptBlockRewards);
+        assertEquals(expected.sweepThreshold, actual.sweepThreshold);
+        assertEquals(expected.sweepInterval, actual.sweepInterval);
+        assertEquals(expected.lastSweepBlockNumber, actual.lastSweepBlockNumber);
+    }
+
+    private static void assertStakeTransferEquals(PoolStorageObjects.StakeTransfer expected, PoolStorageObjects.StakeTransfer actual) {
+        assertEquals(expected.initiator, actual.initiator);
+        assertEquals(expected.fromPool, actual.fromPool);
+        assertEquals(expected.toPool, actual.toPool);
+        assertEquals(expected.amount, actual.amount);
+    }
+}
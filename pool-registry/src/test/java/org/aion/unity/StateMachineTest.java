@@ -296,6 +296,191 @@ public class StateMachineTest {
         Assert.assertEquals(expectedDelegatorRewards.subtract(BigInteger.ONE), result.getDecodedReturnData());
     }
 
+    @Test
+    public void testAutoDelegateRewardsBatch() {
+        // pool1 is used for the batch call, and pool2 for the single calls. Both pools have the same delegations.
+        Address pool1 = setupNewPool(4);
+        Address pool2 = setupNewPool(4);
+        Address[] delegators1 = new Address[3];
+        Address[] delegators2 = new Address[3];
+
+        for (int i = 0; i < 3; i++) {
+            delegators1[i] = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+            delegators2[i] = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("delegate")
+                    .encodeOneAddress(pool1)
+                    .toBytes();
+            AvmRule.ResultWrapper result = RULE.call(delegators1[i], poolRegistry, nStake(i + 1), txData);
+            Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("delegate")
+                    .encodeOneAddress(pool2)
+                    .toBytes();
+            result = RULE.call(delegators2[i], poolRegistry, nStake(i + 1), txData);
+            Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        }
+
+        // the last delegator does not enable auto delegation
+        for (int i = 0; i < 2; i++) {
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("enableAutoRewardsDelegation")
+                    .encodeOneAddress(pool1)
+                    .encodeOneInteger(100000)
+                    .toBytes();
+            AvmRule.ResultWrapper result = RULE.call(delegators1[i], poolRegistry, BigInteger.ZERO, txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("enableAutoRewardsDelegation")
+                    .encodeOneAddress(pool2)
+                    .encodeOneInteger(100000)
+                    .toBytes();
+            result = RULE.call(delegators2[i], poolRegistry, BigInteger.ZERO, txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+        }
+
+        generateBlock(pool1, BigInteger.valueOf(1000000));
+        generateBlock(pool2, BigInteger.valueOf(1000000));
+
+        Address keeper = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        BigInteger singleCallFees = BigInteger.ZERO;
+        for (int i = 0; i < 2; i++) {
+            BigInteger balance = RULE.kernel.getBalance(new AionAddress(keeper.toByteArray()));
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("autoDelegateRewards")
+                    .encodeOneAddress(pool2)
+                    .encodeOneAddress(delegators2[i])
+                    .toBytes();
+            AvmRule.ResultWrapper result = RULE.call(keeper, poolRegistry, BigInteger.ZERO, txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+            singleCallFees = singleCallFees.add(RULE.kernel.getBalance(new AionAddress(keeper.toByteArray())).subtract(balance)
+                    .add(BigInteger.valueOf(result.getTransactionResult().energyUsed)));
+        }
+
+        BigInteger balance = RULE.kernel.getBalance(new AionAddress(keeper.toByteArray()));
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("autoDelegateRewardsBatch")
+                .encodeOneAddress(pool1)
+                .encodeOneAddressArray(delegators1)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(keeper, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        BigInteger batchFees = RULE.kernel.getBalance(new AionAddress(keeper.toByteArray())).subtract(balance)
+                .add(BigInteger.valueOf(result.getTransactionResult().energyUsed));
+
+        Assert.assertTrue(batchFees.signum() == 1);
+        Assert.assertEquals(singleCallFees, batchFees);
+
+        for (int i = 0; i < 3; i++) {
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("getStake")
+                    .encodeOneAddress(pool1)
+                    .encodeOneAddress(delegators1[i])
+                    .toBytes();
+            result = RULE.call(delegators1[i], poolRegistry, BigInteger.ZERO, txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+            BigInteger stake1 = (BigInteger) result.getDecodedReturnData();
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("getStake")
+                    .encodeOneAddress(pool2)
+                    .encodeOneAddress(delegators2[i])
+                    .toBytes();
+            result = RULE.call(delegators2[i], poolRegistry, BigInteger.ZERO, txData);
+            assertTrue(result.getReceiptStatus().isSuccess());
+            Assert.assertEquals(result.getDecodedReturnData(), stake1);
+        }
+
+        // the delegator who did not enable auto delegation is skipped
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getStake")
+                .encodeOneAddress(pool1)
+                .encodeOneAddress(delegators1[2])
+                .toBytes();
+        result = RULE.call(delegators1[2], poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(nStake(3), result.getDecodedReturnData());
+
+        // stake in StakerRegistry and the pool registry stay in sync
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getTotalStake")
+                .encodeOneAddress(pool1)
+                .toBytes();
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        BigInteger totalStake = ((BigInteger[]) result.getDecodedReturnData())[0];
+
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(totalStake, result.getDecodedReturnData());
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getTotalStake")
+                .encodeOneAddress(pool2)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(totalStake, result.getDecodedReturnData());
+    }
+
+    @Test
+    public void testAutoDelegateRewardsBatchOverCapacity() {
+        Address pool = setupNewPool(4);
+        Address[] delegators = new Address[2];
+        for (int i = 0; i < 2; i++) {
+            delegators[i] = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+            // the first delegator has twice the stake, and earns more rewards than the second one
+            byte[] txData = ABIUtil.encodeMethodArguments("delegate", pool);
+            assertTrue(RULE.call(delegators[i], poolRegistry, nStake(2 - i), txData).getReceiptStatus().isSuccess());
+            txData = ABIUtil.encodeMethodArguments("enableAutoRewardsDelegation", pool, 0);
+            assertTrue(RULE.call(delegators[i], poolRegistry, BigInteger.ZERO, txData).getReceiptStatus().isSuccess());
+        }
+        generateBlock(pool, BigInteger.valueOf(1000000));
+
+        BigInteger[] rewards = new BigInteger[2];
+        for (int i = 0; i < 2; i++) {
+            byte[] txData = ABIUtil.encodeMethodArguments("getRewards", pool, delegators[i]);
+            rewards[i] = (BigInteger) RULE.call(delegators[i], poolRegistry, BigInteger.ZERO, txData).getDecodedReturnData();
+            assertTrue(rewards[i].signum() == 1);
+        }
+        assertTrue(rewards[0].compareTo(rewards[1]) > 0);
+
+        // fill the pool up to the capacity (100 times the self stake) minus the rewards of the second delegator
+        BigInteger capacity = MIN_SELF_STAKE.multiply(BigInteger.valueOf(100));
+        Address filler = RULE.getRandomAddress(capacity);
+        byte[] txData = ABIUtil.encodeMethodArguments("delegate", pool);
+        AvmRule.ResultWrapper result = RULE.call(filler, poolRegistry, capacity.subtract(nStake(4)).subtract(rewards[1]), txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        // the first delegator is skipped, the second one fits
+        txData = ABIUtil.encodeMethodArguments("autoDelegateRewardsBatch", pool, delegators);
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        assertTrue(result.getReceiptStatus().isSuccess());
+
+        txData = ABIUtil.encodeMethodArguments("getStake", pool, delegators[0]);
+        Assert.assertEquals(nStake(2), RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData).getDecodedReturnData());
+        txData = ABIUtil.encodeMethodArguments("getRewards", pool, delegators[0]);
+        Assert.assertEquals(rewards[0], RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData).getDecodedReturnData());
+        txData = ABIUtil.encodeMethodArguments("getStake", pool, delegators[1]);
+        Assert.assertEquals(nStake(1).add(rewards[1]), RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData).getDecodedReturnData());
+
+        txData = ABIUtil.encodeMethodArguments("getTotalStake", pool);
+        result = RULE.call(preminedAddress, poolRegistry, BigInteger.ZERO, txData);
+        Assert.assertEquals(capacity, ((BigInteger[]) result.getDecodedReturnData())[0]);
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertEquals(capacity, result.getDecodedReturnData());
+
+        // the rewards that were not delegated can still be withdrawn
+        BigInteger balance = RULE.kernel.getBalance(new AionAddress(delegators[0].toByteArray()));
+        result = RULE.call(delegators[0], poolRegistry, BigInteger.ZERO, ABIUtil.encodeMethodArguments("withdrawRewards", pool));
+        assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(rewards[0], result.getDecodedReturnData());
+        Assert.assertEquals(balance.add(rewards[0]).subtract(BigInteger.valueOf(result.getTransactionResult().energyUsed)),
+                RULE.kernel.getBalance(new AionAddress(delegators[0].toByteArray())));
+    }
 
     @Test
     public void testGetRewards(){
@@ -5,7 +5,9 @@ import avm.Blockchain;
 import avm.Result;
 import org.aion.avm.tooling.abi.Callable;
 import org.aion.avm.tooling.abi.Fallback;
+import org.aion.avm.userlib.AionMap;
 import org.aion.avm.userlib.abi.ABIDecoder;
+import org.aion.avm.userlib.abi.ABIStreamingEncoder;
 
 import java.math.BigInteger;
 
@@ -19,6 +21,8 @@ public class StakerRegistry {
     private static final long UNBOND_LOCK_UP_PERIOD; // 6 * 60 * 24;
     private static final long TRANSFER_LOCK_UP_PERIOD; // 6 * 10;
 
+    private static final int MAX_PENDING_UNBONDS_PAGE_SIZE = 100;
+
     private static long nextUnbondId = 0;
     private static long nextTransferId = 0;
 
@@ -46,24 +50,21 @@ public class StakerRegistry {
         requireNonNull(signingAddress);
         requireNonNull(coinbaseAddress);
 
-        require(StakerRegistryStorage.getIdentityAddress(signingAddress) == null);
-        require(StakerRegistryStorage.getStake(identityAddress) == null);
+        require(StakerRegistryStorage.getStakerRecord(signingAddress) == null);
+        require(StakerRegistryStorage.getStakerAddressInfo(identityAddress) == null);
 
         BigInteger stake = Blockchain.getValue();
         require(stake.compareTo(MIN_STAKE) >= 0);
 
         Address managementAddress = Blockchain.getCaller();
 
-        // signingAddress -> identityAddress
-        StakerRegistryStorage.putIdentityAddress(signingAddress, identityAddress);
-
         StakerRegistryStorage.putManagementAddress(identityAddress, managementAddress);
-        StakerRegistryStorage.putStakerAddressInfo(identityAddress, new StakerStorageObjects.AddressInfo(signingAddress, coinbaseAddress, Blockchain.getBlockNumber()));
+        StakerRegistryStorage.putStakerAddressInfo(identityAddress, new StakerStorageObjects.AddressInfo(signingAddress, Blockchain.getBlockNumber()));
 
-        StakerRegistryStorage.putStake(identityAddress, stake);
+        // signingAddress -> identityAddress, coinbaseAddress, stake, state
         // default state for new stakers is set as true. This can only be explicitly changed by the management address.
         // ability to produce blocks depends on both the state and the minimum bond requirement.
-        StakerRegistryStorage.putState(identityAddress, true);
+        StakerRegistryStorage.putStakerRecord(signingAddress, new StakerStorageObjects.StakerRecord(identityAddress, coinbaseAddress, stake, true));
 
         StakerRegistryEvents.registeredStaker(identityAddress, managementAddress, signingAddress, coinbaseAddress);
     }
@@ -80,10 +81,7 @@ public class StakerRegistry {
         requirePositive(amount);
         requireStakerAndManager(staker, Blockchain.getCaller());
 
-        BigInteger stake = StakerRegistryStorage.getStake(staker);
-
-        stake = stake.add(amount);
-        StakerRegistryStorage.putStake(staker, stake);
+        creditStake(staker, amount);
 
         StakerRegistryEvents.bonded(staker, amount);
     }
@@ -126,17 +124,26 @@ public class StakerRegistry {
         requireNoValue();
         require(fee.signum() >= 0 && fee.compareTo(amount) <= 0);
 
-        BigInteger stake = StakerRegistryStorage.getStake(staker);
+        Address signingAddress = StakerRegistryStorage.getStakerAddressInfo(staker).signingAddress;
+        StakerStorageObjects.StakerRecord stakerRecord = StakerRegistryStorage.getStakerRecord(signingAddress);
 
-        require(amount.compareTo(stake) <= 0);
+        require(amount.compareTo(stakerRecord.stake) <= 0);
 
-        stake = stake.subtract(amount);
-        StakerRegistryStorage.putStake(staker, stake);
+        stakerRecord.stake = stakerRecord.stake.subtract(amount);
+        StakerRegistryStorage.putStakerRecord(signingAddress, stakerRecord);
 
         long id = nextUnbondId++;
         StakerStorageObjects.PendingUnbond unbond = new StakerStorageObjects.PendingUnbond(recipient, amount, fee, Blockchain.getBlockNumber());
         StakerRegistryStorage.putPendingUnbond(id, unbond);
 
+        // append the unbond to the recipient's queue, if the recipient has enabled it
+        StakerStorageObjects.UnbondQueue queue = StakerRegistryStorage.getUnbondQueue(recipient);
+        if (queue != null) {
+            StakerRegistryStorage.putUnbondQueueEntry(recipient, queue.tail, id);
+            queue.tail++;
+            StakerRegistryStorage.putUnbondQueue(recipient, queue);
+        }
+
         StakerRegistryEvents.unbonded(id, staker, recipient, amount, fee);
 
         return id;
@@ -156,8 +163,9 @@ public class StakerRegistry {
         Address caller = Blockchain.getCaller();
         requireStakerAndManager(fromStaker, caller);
 
-        BigInteger stake = StakerRegistryStorage.getStake(fromStaker);
-        validateAndGetStake(toStaker);
+        Address signingAddress = StakerRegistryStorage.getStakerAddressInfo(fromStaker).signingAddress;
+        StakerStorageObjects.StakerRecord stakerRecord = StakerRegistryStorage.getStakerRecord(signingAddress);
+        validateAndGetSigningAddress(toStaker);
         requirePositive(amount);
         require(!fromStaker.equals(toStaker));
         requireNoValue();
@@ -165,11 +173,11 @@ public class StakerRegistry {
         require(fee.signum() >= 0 && fee.compareTo(amount) < 0);
 
         // check previous stake
-        require(amount.compareTo(stake) <= 0);
+        require(amount.compareTo(stakerRecord.stake) <= 0);
 
         // update stake
-        stake = stake.subtract(amount);
-        StakerRegistryStorage.putStake(fromStaker, stake);
+        stakerRecord.stake = stakerRecord.stake.subtract(amount);
+        StakerRegistryStorage.putStakerRecord(signingAddress, stakerRecord);
 
         // create pending transfer
         long id = nextTransferId++;
@@ -187,6 +195,18 @@ public class StakerRegistry {
      */
     @Callable
     public static void finalizeUnbond(long id) {
+        finalizeUnbondTo(id, Blockchain.getCaller());
+    }
+
+    /**
+     * Finalizes an unbond operation, specified by id, and transfers the unbond fee to the beneficiary instead of the caller.
+     *
+     * @param id          the pending unbond identifier
+     * @param beneficiary the address receiving the unbond fee
+     */
+    @Callable
+    public static void finalizeUnbondTo(long id, Address beneficiary) {
+        requireNonNull(beneficiary);
         requireNoValue();
 
         // check existence
@@ -204,12 +224,150 @@ public class StakerRegistry {
 
         // transfer (stake - fee) to the unbond recipient
         secureCall(unbond.recipient, remainingStake, new byte[0], Blockchain.getRemainingEnergy());
-        // transfer unbond fee to the caller
-        secureCall(Blockchain.getCaller(), unbond.fee, new byte[0], Blockchain.getRemainingEnergy());
+        // transfer unbond fee to the beneficiary
+        transferFee(beneficiary, unbond.fee);
 
         StakerRegistryEvents.finalizedUnbond(id);
     }
 
+    /**
+     * Finalizes multiple unbond operations. Unbonds which do not exist or have not passed the lock-up period are skipped.
+     * The sum of the unbond fees is transferred to the caller in one transfer.
+     *
+     * @param ids the pending unbond identifiers
+     */
+    @Callable
+    public static void finalizeUnbonds(long[] ids) {
+        finalizeUnbondsTo(ids, Blockchain.getCaller());
+    }
+
+    /**
+     * Finalizes multiple unbond operations, and transfers the sum of the unbond fees to the beneficiary instead of the caller.
+     * Unbonds which do not exist or have not passed the lock-up period are skipped.
+     *
+     * @param ids         the pending unbond identifiers
+     * @param beneficiary the address receiving the unbond fees
+     */
+    @Callable
+    public static void finalizeUnbondsTo(long[] ids, Address beneficiary) {
+        requireNonNull(ids);
+        requireNonNull(beneficiary);
+        requireNoValue();
+
+        long blockNumber = Blockchain.getBlockNumber();
+        BigInteger totalFee = BigInteger.ZERO;
+
+        for (long id : ids) {
+            StakerStorageObjects.PendingUnbond unbond = StakerRegistryStorage.getPendingUnbond(id);
+
+            // skip unbonds that are already finalized or are still in the lock-up period
+            if (unbond == null || blockNumber < unbond.blockNumber + UNBOND_LOCK_UP_PERIOD) {
+                continue;
+            }
+
+            // remove the unbond
+            StakerRegistryStorage.putPendingUnbond(id, null);
+
+            // transfer (stake - fee) to the unbond recipient
+            secureCall(unbond.recipient, unbond.value.subtract(unbond.fee), new byte[0], Blockchain.getRemainingEnergy());
+            totalFee = totalFee.add(unbond.fee);
+
+            StakerRegistryEvents.finalizedUnbond(id);
+        }
+
+        // transfer the sum of the unbond fees to the beneficiary
+        transferFee(beneficiary, totalFee);
+    }
+
+    /**
+     * Enables or disables the pending unbond queue of the caller. Unbonds are only appended to the queue of a recipient
+     * that has enabled it, so that the other unbonds do not pay for the queue storage. A queue can only be disabled when
+     * it is empty.
+     *
+     * @param enabled true to enable the queue, false to disable it
+     */
+    @Callable
+    public static void setUnbondQueueEnabled(boolean enabled) {
+        requireNoValue();
+
+        Address recipient = Blockchain.getCaller();
+        StakerStorageObjects.UnbondQueue queue = StakerRegistryStorage.getUnbondQueue(recipient);
+        if (enabled && queue == null) {
+            StakerRegistryStorage.putUnbondQueue(recipient, new StakerStorageObjects.UnbondQueue(0, 0));
+        } else if (!enabled && queue != null) {
+            require(queue.head == queue.tail);
+            StakerRegistryStorage.putUnbondQueue(recipient, null);
+        }
+        StakerRegistryEvents.setUnbondQueueEnabled(recipient, enabled);
+    }
+
+    /**
+     * Finalizes the matured unbonds of a recipient, oldest first, until an unbond in the lock-up period is reached or
+     * maxCount queue entries have been processed. Entries of unbonds that were already finalized by id are discarded
+     * and count towards maxCount. The remaining stake of all the finalized unbonds is transferred to the recipient, and
+     * the sum of the unbond fees to the caller, in one transfer each. Only the unbonds created while the recipient's
+     * queue was enabled are finalized, see {@link #setUnbondQueueEnabled(boolean)}.
+     *
+     * @param recipient the unbond recipient
+     * @param maxCount  the maximum number of queue entries to process
+     * @return the number of finalized unbonds
+     */
+    @Callable
+    public static int finalizeAllMatured(Address recipient, int maxCount) {
+        requireNonNull(recipient);
+        require(maxCount > 0);
+        requireNoValue();
+
+        StakerStorageObjects.UnbondQueue queue = StakerRegistryStorage.getUnbondQueue(recipient);
+        if (queue == null) {
+            return 0;
+        }
+
+        long blockNumber = Blockchain.getBlockNumber();
+        BigInteger totalValue = BigInteger.ZERO;
+        BigInteger totalFee = BigInteger.ZERO;
+        int finalizedCount = 0;
+        int processedCount = 0;
+
+        while (queue.head < queue.tail && processedCount < maxCount) {
+            long id = StakerRegistryStorage.getUnbondQueueEntry(recipient, queue.head);
+            StakerStorageObjects.PendingUnbond unbond = StakerRegistryStorage.getPendingUnbond(id);
+
+            if (unbond != null) {
+                // the queue is ordered by block number, all the following unbonds are in the lock-up period as well
+                if (blockNumber < unbond.blockNumber + UNBOND_LOCK_UP_PERIOD) {
+                    break;
+                }
+
+                // remove the unbond
+                StakerRegistryStorage.putPendingUnbond(id, null);
+
+                totalValue = totalValue.add(unbond.value.subtract(unbond.fee));
+                totalFee = totalFee.add(unbond.fee);
+                finalizedCount++;
+
+                StakerRegistryEvents.finalizedUnbond(id);
+            }
+
+            StakerRegistryStorage.putUnbondQueueEntry(recipient, queue.head, null);
+            queue.head++;
+            processedCount++;
+        }
+
+        if (processedCount > 0) {
+            StakerRegistryStorage.putUnbondQueue(recipient, queue);
+        }
+
+        // transfer (stake - fee) of all the finalized unbonds to the recipient
+        if (totalValue.signum() > 0) {
+            secureCall(recipient, totalValue, new byte[0], Blockchain.getRemainingEnergy());
+        }
+        // transfer the sum of the unbond fees to the caller
+        transferFee(Blockchain.getCaller(), totalFee);
+
+        return finalizedCount;
+    }
+
     /**
      * Finalizes a transfer operations.
      *
@@ -217,16 +375,28 @@ public class StakerRegistry {
      */
     @Callable
     public static void finalizeTransfer(long id) {
+        finalizeTransferTo(id, Blockchain.getCaller());
+    }
+
+    /**
+     * Finalizes a transfer operation, and transfers the transfer fee to the beneficiary instead of the caller.
+     *
+     * @param id          pending transfer identifier
+     * @param beneficiary the address receiving the transfer fee
+     * @return the transfer fee
+     */
+    @Callable
+    public static BigInteger finalizeTransferTo(long id, Address beneficiary) {
+        requireNonNull(beneficiary);
         requireNoValue();
 
         // check existence
         StakerStorageObjects.PendingTransfer transfer = StakerRegistryStorage.getPendingTransfer(id);
         requireNonNull(transfer);
-        Address caller = Blockchain.getCaller();
 
         // only the initiator can finalize the transfer, mainly because
         // the pool registry needs to keep track of stake transfers.
-        require(caller.equals(transfer.initiator));
+        require(Blockchain.getCaller().equals(transfer.initiator));
 
         // lock-up period check
         // since the block number values are never set by a contract caller, overflows cannot happen here.
@@ -236,18 +406,75 @@ public class StakerRegistry {
         StakerRegistryStorage.putPendingTransfer(id, null);
 
         // credit the stake to the designated pool of the recipient
-        Address toStaker = transfer.toStaker;
         // deduct the fee from transfer amount
-        BigInteger remainingTransferValue = transfer.value.subtract(transfer.fee);
-
-        BigInteger stake = StakerRegistryStorage.getStake(toStaker);
-        stake = stake.add(remainingTransferValue);
-        StakerRegistryStorage.putStake(toStaker, stake);
+        creditStake(transfer.toStaker, transfer.value.subtract(transfer.fee));
 
-        // transfer the fee to the caller
-        secureCall(caller, transfer.fee, new byte[0], Blockchain.getRemainingEnergy());
+        // transfer the fee to the beneficiary
+        transferFee(beneficiary, transfer.fee);
 
         StakerRegistryEvents.finalizedTransfer(id);
+
+        return transfer.fee;
+    }
+
+    /**
+     * Finalizes multiple transfer operations. Transfers which do not exist or have not passed the lock-up period are skipped.
+     * The sum of the transfer fees is transferred to the caller in one transfer.
+     *
+     * @param ids pending transfer identifiers
+     * @return the fee of each finalized transfer, or null for the skipped transfers
+     */
+    @Callable
+    public static BigInteger[] finalizeTransfers(long[] ids) {
+        return finalizeTransfersTo(ids, Blockchain.getCaller());
+    }
+
+    /**
+     * Finalizes multiple transfer operations, and transfers the sum of the transfer fees to the beneficiary instead of the caller.
+     * Transfers which do not exist or have not passed the lock-up period are skipped.
+     *
+     * @param ids         pending transfer identifiers
+     * @param beneficiary the address receiving the transfer fees
+     * @return the fee of each finalized transfer, or null for the skipped transfers
+     */
+    @Callable
+    public static BigInteger[] finalizeTransfersTo(long[] ids, Address beneficiary) {
+        requireNonNull(ids);
+        requireNonNull(beneficiary);
+        requireNoValue();
+
+        Address caller = Blockchain.getCaller();
+        long blockNumber = Blockchain.getBlockNumber();
+        BigInteger totalFee = BigInteger.ZERO;
+        BigInteger[] fees = new BigInteger[ids.length];
+
+        for (int i = 0; i < ids.length; i++) {
+            StakerStorageObjects.PendingTransfer transfer = StakerRegistryStorage.getPendingTransfer(ids[i]);
+
+            // skip transfers that are already finalized or are still in the lock-up period
+            if (transfer == null || blockNumber < transfer.blockNumber + TRANSFER_LOCK_UP_PERIOD) {
+                continue;
+            }
+
+            // only the initiator can finalize the transfer
+            require(caller.equals(transfer.initiator));
+
+            // remove the transfer
+            StakerRegistryStorage.putPendingTransfer(ids[i], null);
+
+            // credit the stake, after deducting the fee, to the designated staker
+            creditStake(transfer.toStaker, transfer.value.subtract(transfer.fee));
+
+            fees[i] = transfer.fee;
+            totalFee = totalFee.add(transfer.fee);
+
+            StakerRegistryEvents.finalizedTransfer(ids[i]);
+        }
+
+        // transfer the sum of the transfer fees to the beneficiary
+        transferFee(beneficiary, totalFee);
+
+        return fees;
     }
 
     /**
@@ -260,9 +487,11 @@ public class StakerRegistry {
     public static void setState(Address staker, boolean newState){
         requireNoValue();
         requireStakerAndManager(staker, Blockchain.getCaller());
-        boolean currentState = StakerRegistryStorage.getState(staker);
-        if(currentState != newState) {
-            StakerRegistryStorage.putState(staker, newState);
+        Address signingAddress = StakerRegistryStorage.getStakerAddressInfo(staker).signingAddress;
+        StakerStorageObjects.StakerRecord stakerRecord = StakerRegistryStorage.getStakerRecord(signingAddress);
+        if(stakerRecord.state != newState) {
+            stakerRecord.state = newState;
+            StakerRegistryStorage.putStakerRecord(signingAddress, stakerRecord);
             StakerRegistryEvents.changedState(staker, newState);
         }
     }
@@ -288,11 +517,13 @@ public class StakerRegistry {
             require(blockNumber >= addressInfo.lastSigningAddressUpdate + SIGNING_ADDRESS_COOLING_PERIOD);
 
             // check duplicated signing address
-            require(StakerRegistryStorage.getIdentityAddress(newSigningAddress) == null);
+            require(StakerRegistryStorage.getStakerRecord(newSigningAddress) == null);
 
+            // the staker record is moved to the new signing address.
             // the old signing address is removed and can be used again by another staker
-            StakerRegistryStorage.putIdentityAddress(addressInfo.signingAddress, null);
-            StakerRegistryStorage.putIdentityAddress(newSigningAddress, staker);
+            StakerStorageObjects.StakerRecord stakerRecord = StakerRegistryStorage.getStakerRecord(addressInfo.signingAddress);
+            StakerRegistryStorage.putStakerRecord(addressInfo.signingAddress, null);
+            StakerRegistryStorage.putStakerRecord(newSigningAddress, stakerRecord);
 
             addressInfo.signingAddress = newSigningAddress;
             addressInfo.lastSigningAddressUpdate = blockNumber;
@@ -314,11 +545,12 @@ public class StakerRegistry {
         requireNoValue();
         requireStakerAndManager(staker, Blockchain.getCaller());
 
-        StakerStorageObjects.AddressInfo addressInfo = StakerRegistryStorage.getStakerAddressInfo(staker);
+        Address signingAddress = StakerRegistryStorage.getStakerAddressInfo(staker).signingAddress;
+        StakerStorageObjects.StakerRecord stakerRecord = StakerRegistryStorage.getStakerRecord(signingAddress);
 
-        if (!newCoinbaseAddress.equals(addressInfo.coinbaseAddress)) {
-            addressInfo.coinbaseAddress = newCoinbaseAddress;
-            StakerRegistryStorage.putStakerAddressInfo(staker, addressInfo);
+        if (!newCoinbaseAddress.equals(stakerRecord.coinbaseAddress)) {
+            stakerRecord.coinbaseAddress = newCoinbaseAddress;
+            StakerRegistryStorage.putStakerRecord(signingAddress, stakerRecord);
             StakerRegistryEvents.setCoinbaseAddress(staker, newCoinbaseAddress);
         }
     }
@@ -338,25 +570,44 @@ public class StakerRegistry {
         requireNonNull(coinbaseAddress);
         requireNoValue();
 
-        // if not a staker
-        Address staker = StakerRegistryStorage.getIdentityAddress(signingAddress);
-        if (staker == null) {
-            return BigInteger.ZERO;
-        }
+        return getEffectiveStake(StakerRegistryStorage.getStakerRecord(signingAddress), coinbaseAddress);
+    }
 
-        // if coinbase addresses do not match
-        if (!StakerRegistryStorage.getStakerAddressInfo(staker).coinbaseAddress.equals(coinbaseAddress)) {
-            return BigInteger.ZERO;
-        }
+    /**
+     * Returns the effective stake of the staker of each block in a range, evaluated against the same state.
+     * The staker record of a signing address that appears more than once is only read once.
+     *
+     * Designed for kernel usage only.
+     *
+     * @param signingAddresses the signing addresses extracted from the block headers
+     * @param coinbaseAddresses the coinbase addresses extracted from the block headers, in the same order
+     * @return the effective stake of the staker of each block
+     */
+    @Callable
+    public static BigInteger[] getEffectiveStakes(Address[] signingAddresses, Address[] coinbaseAddresses) {
+        requireNonNull(signingAddresses);
+        requireNonNull(coinbaseAddresses);
+        require(signingAddresses.length == coinbaseAddresses.length);
+        requireNoValue();
 
-        // if not active
-        BigInteger totalStake = StakerRegistryStorage.getStake(staker);
-        if (!isStakerActive(staker, totalStake)) {
-            return BigInteger.ZERO;
+        AionMap<Address, StakerStorageObjects.StakerRecord> stakerRecords = new AionMap<>();
+        BigInteger[] effectiveStakes = new BigInteger[signingAddresses.length];
+
+        for (int i = 0; i < signingAddresses.length; i++) {
+            Address signingAddress = signingAddresses[i];
+            requireNonNull(signingAddress);
+            requireNonNull(coinbaseAddresses[i]);
+
+            StakerStorageObjects.StakerRecord stakerRecord;
+            if (stakerRecords.containsKey(signingAddress)) {
+                stakerRecord = stakerRecords.get(signingAddress);
+            } else {
+                stakerRecord = StakerRegistryStorage.getStakerRecord(signingAddress);
+                stakerRecords.put(signingAddress, stakerRecord);
+            }
+            effectiveStakes[i] = getEffectiveStake(stakerRecord, coinbaseAddresses[i]);
         }
-
-        // conversion: 1 nAmp = 1 stake
-        return totalStake;
+        return effectiveStakes;
     }
 
     /**
@@ -367,9 +618,9 @@ public class StakerRegistry {
      */
     @Callable
     public static BigInteger getTotalStake(Address staker) {
-        BigInteger stake = validateAndGetStake(staker);
+        Address signingAddress = validateAndGetSigningAddress(staker);
         requireNoValue();
-        return stake;
+        return StakerRegistryStorage.getStakerRecord(signingAddress).stake;
     }
 
     /**
@@ -382,7 +633,7 @@ public class StakerRegistry {
     public static boolean isStaker(Address staker) {
         requireNoValue();
         requireNonNull(staker);
-        return StakerRegistryStorage.getStake(staker) != null;
+        return StakerRegistryStorage.getStakerAddressInfo(staker) != null;
     }
 
     /**
@@ -393,10 +644,10 @@ public class StakerRegistry {
      */
     @Callable
     public static boolean isActive(Address staker) {
-        BigInteger stake = validateAndGetStake(staker);
+        Address signingAddress = validateAndGetSigningAddress(staker);
         requireNoValue();
 
-        return isStakerActive(staker, stake);
+        return isStakerActive(StakerRegistryStorage.getStakerRecord(signingAddress));
     }
 
     /**
@@ -423,12 +674,89 @@ public class StakerRegistry {
      */
     @Callable
     public static Address getCoinbaseAddress(Address staker) {
-        requireNonNull(staker);
-        StakerStorageObjects.AddressInfo addressInfo = StakerRegistryStorage.getStakerAddressInfo(staker);
-        requireNonNull(addressInfo);
+        Address signingAddress = validateAndGetSigningAddress(staker);
         requireNoValue();
 
-        return addressInfo.coinbaseAddress;
+        return StakerRegistryStorage.getStakerRecord(signingAddress).coinbaseAddress;
+    }
+
+    /**
+     * Returns the number of blocks a stake transfer is locked up for before it can be finalized.
+     *
+     * @return the transfer lock-up period
+     */
+    @Callable
+    public static long getTransferLockUpPeriod() {
+        requireNoValue();
+        return TRANSFER_LOCK_UP_PERIOD;
+    }
+
+    /**
+     * Returns a page of the recipient's pending unbonds, oldest first. Queue entries of unbonds that were already
+     * finalized by id are skipped but count towards the limit. Only the unbonds created while the recipient's queue was
+     * enabled are listed.
+     *
+     * The result is ABI encoded as the cursor of the next page (int) and the number of unbonds (int), followed by
+     * the id (long), value (BigInteger), fee (BigInteger) and block number (long) of each unbond.
+     *
+     * @param recipient the unbond recipient
+     * @param cursor    the queue position to start from, 0 for the first page
+     * @param limit     the maximum number of queue entries to read, at most MAX_PENDING_UNBONDS_PAGE_SIZE entries are read
+     * @return the encoded page of pending unbonds
+     */
+    @Callable
+    public static byte[] getPendingUnbonds(Address recipient, int cursor, int limit) {
+        requireNonNull(recipient);
+        require(cursor >= 0 && limit > 0);
+        requireNoValue();
+
+        if (limit > MAX_PENDING_UNBONDS_PAGE_SIZE) {
+            limit = MAX_PENDING_UNBONDS_PAGE_SIZE;
+        }
+
+        StakerStorageObjects.UnbondQueue queue = StakerRegistryStorage.getUnbondQueue(recipient);
+        int start = cursor;
+        int end = cursor;
+        if (queue != null) {
+            // entries before the head have been removed
+            if (start < queue.head) {
+                start = queue.head;
+            }
+            end = queue.tail - start > limit ? start + limit : queue.tail;
+            if (end < start) {
+                end = start;
+            }
+        }
+
+        long[] ids = new long[end - start];
+        StakerStorageObjects.PendingUnbond[] unbonds = new StakerStorageObjects.PendingUnbond[ids.length];
+        // int + int
+        int length = (1 + Integer.BYTES) * 2;
+        int count = 0;
+        for (int position = start; position < end; position++) {
+            long id = StakerRegistryStorage.getUnbondQueueEntry(recipient, position);
+            StakerStorageObjects.PendingUnbond unbond = StakerRegistryStorage.getPendingUnbond(id);
+            if (unbond != null) {
+                ids[count] = id;
+                unbonds[count] = unbond;
+                // long + BigInteger + BigInteger + long
+                length += (1 + Long.BYTES) * 2 + getEncodedSize(unbond.value) + getEncodedSize(unbond.fee);
+                count++;
+            }
+        }
+
+        // encoded data is directly written to the byte array to reduce energy usage
+        byte[] result = new byte[length];
+        ABIStreamingEncoder encoder = new ABIStreamingEncoder(result)
+                .encodeOneInteger(end)
+                .encodeOneInteger(count);
+        for (int i = 0; i < count; i++) {
+            encoder.encodeOneLong(ids[i])
+                    .encodeOneBigInteger(unbonds[i].value)
+                    .encodeOneBigInteger(unbonds[i].fee)
+                    .encodeOneLong(unbonds[i].blockNumber);
+        }
+        return result;
     }
 
     @Fallback
@@ -442,8 +770,35 @@ public class StakerRegistry {
         require(managementAddress != null && managementAddress.equals(manager));
     }
 
-    private static boolean isStakerActive(Address staker, BigInteger stake){
-        return stake.compareTo(MIN_STAKE) >= 0 && StakerRegistryStorage.getState(staker);
+    private static BigInteger getEffectiveStake(StakerStorageObjects.StakerRecord stakerRecord, Address coinbaseAddress) {
+        // if not a staker
+        if (stakerRecord == null) {
+            return BigInteger.ZERO;
+        }
+
+        // if coinbase addresses do not match
+        if (!stakerRecord.coinbaseAddress.equals(coinbaseAddress)) {
+            return BigInteger.ZERO;
+        }
+
+        // if not active
+        if (!isStakerActive(stakerRecord)) {
+            return BigInteger.ZERO;
+        }
+
+        // conversion: 1 nAmp = 1 stake
+        return stakerRecord.stake;
+    }
+
+    private static boolean isStakerActive(StakerStorageObjects.StakerRecord stakerRecord){
+        return stakerRecord.stake.compareTo(MIN_STAKE) >= 0 && stakerRecord.state;
+    }
+
+    private static void creditStake(Address staker, BigInteger amount) {
+        Address signingAddress = StakerRegistryStorage.getStakerAddressInfo(staker).signingAddress;
+        StakerStorageObjects.StakerRecord stakerRecord = StakerRegistryStorage.getStakerRecord(signingAddress);
+        stakerRecord.stake = stakerRecord.stake.add(amount);
+        StakerRegistryStorage.putStakerRecord(signingAddress, stakerRecord);
     }
 
     private static void require(boolean condition) {
@@ -451,12 +806,12 @@ public class StakerRegistry {
         Blockchain.require(condition);
     }
 
-    // validate the staker has been registered and return its stake info
-    private static BigInteger validateAndGetStake(Address staker) {
+    // validate the staker has been registered and return its signing address, which is the key of the staker record
+    private static Address validateAndGetSigningAddress(Address staker) {
         requireNonNull(staker);
-        BigInteger stake = StakerRegistryStorage.getStake(staker);
-        requireNonNull(stake);
-        return stake;
+        StakerStorageObjects.AddressInfo addressInfo = StakerRegistryStorage.getStakerAddressInfo(staker);
+        requireNonNull(addressInfo);
+        return addressInfo.signingAddress;
     }
 
     private static void requirePositive(BigInteger num) {
@@ -471,8 +826,20 @@ public class StakerRegistry {
         require(Blockchain.getValue().signum() == 0);
     }
 
+    private static void transferFee(Address beneficiary, BigInteger fee) {
+        // skip the value transfer when there is no fee to pay
+        if (fee.signum() > 0) {
+            secureCall(beneficiary, fee, new byte[0], Blockchain.getRemainingEnergy());
+        }
+    }
+
     private static void secureCall(Address targetAddress, BigInteger value, byte[] data, long energyLimit) {
         Result result = Blockchain.call(targetAddress, value, data, energyLimit);
         require(result.isSuccess());
     }
+
+    private static int getEncodedSize(BigInteger value){
+        // (byte) token + (byte) length + value length
+        return 1 + 1 + value.toByteArray().length;
+    }
 }
@@ -75,6 +75,12 @@ public class StakerRegistryEvents {
                 new byte[]{(byte) (state ? 1 : 0)});
     }
 
+    protected static void setUnbondQueueEnabled(Address recipient, boolean enabled) {
+        Blockchain.log("UnbondQueueEnabledSet".getBytes(),
+                recipient.toByteArray(),
+                new byte[]{(byte) (enabled ? 1 : 0)});
+    }
+
     protected static void stakerRegistryDeployed(BigInteger minSelfStake, long signingAddressCoolingPeriod, long undelegateLockUpPeriod, long transferLockUpPeriod) {
         Blockchain.log("StakerRegistryDeployed".getBytes(),
                 AionUtilities.padLeft(minSelfStake.toByteArray()),
@@ -10,37 +10,37 @@ public class StakerRegistryStorage {
 
     // used for deriving storage key
     private enum StorageSlots {
-        STAKE_INFO, // staker identityAddress -> total stake
-        ADDRESS_INFO, // staker identityAddress -> staker signingAddress, coinbaseAddress, lastSigningAddressUpdate
-        SIGNING_ADDRESS, // staker signingAddress -> staker identityAddress
+        STAKER_RECORD, // staker signingAddress -> staker identityAddress, coinbaseAddress, total stake, state
+        ADDRESS_INFO, // staker identityAddress -> staker signingAddress, lastSigningAddressUpdate
         MANAGEMENT_ADDRESS, // staker identityAddress -> staker managementAddress
         PENDING_UNBOND, // unbondId -> recipient, value, block number
         PENDING_TRANSFER, // transferId -> initiator, toStaker, recipient, value, block number
-        STATE, // staker identityAddress -> state
+        UNBOND_QUEUE, // recipient -> head, tail, only stored while the recipient's queue is enabled
+        UNBOND_QUEUE_ENTRY, // recipient + position -> unbondId
     }
 
     /**
-     * Puts the identity address associated with the signing address into storage
+     * Puts the staker record associated with the signing address into storage
      *
-     * @param signingAddress  staker signing address
-     * @param identityAddress staker identity address. null will remove the address from storage.
+     * @param signingAddress staker signing address
+     * @param stakerRecord   staker record. null will remove the record from storage.
      */
-    protected static void putIdentityAddress(Address signingAddress, Address identityAddress) {
-        byte[] key = getKey(StorageSlots.SIGNING_ADDRESS, signingAddress.toByteArray());
-        byte[] value = identityAddress == null ? null : identityAddress.toByteArray();
+    protected static void putStakerRecord(Address signingAddress, StakerStorageObjects.StakerRecord stakerRecord) {
+        byte[] key = getKey(StorageSlots.STAKER_RECORD, signingAddress.toByteArray());
+        byte[] value = stakerRecord == null ? null : stakerRecord.serialize();
         Blockchain.putStorage(key, value);
     }
 
     /**
-     * Retrieves identity address corresponding to a signing address from storage
+     * Retrieves the staker record corresponding to a signing address from storage
      *
      * @param signingAddress staker signing address
-     * @return if signing address is present in storage, staker identity address. null otherwise
+     * @return if signing address is present in storage, the staker record. null otherwise
      */
-    protected static Address getIdentityAddress(Address signingAddress) {
-        byte[] key = getKey(StorageSlots.SIGNING_ADDRESS, signingAddress.toByteArray());
+    protected static StakerStorageObjects.StakerRecord getStakerRecord(Address signingAddress) {
+        byte[] key = getKey(StorageSlots.STAKER_RECORD, signingAddress.toByteArray());
         byte[] value = Blockchain.getStorage(key);
-        return value == null ? null : new Address(value);
+        return value == null ? null : StakerStorageObjects.StakerRecord.from(value);
     }
 
     /**
@@ -67,7 +67,7 @@ public class StakerRegistryStorage {
     }
 
     /**
-     * Puts the signing address, coinbase address, and last block where signing address was updated into storage
+     * Puts the signing address and last block where signing address was updated into storage
      *
      * @param identityAddress staker identity address
      * @param addressInfo     staker address info, not null
@@ -79,7 +79,7 @@ public class StakerRegistryStorage {
     }
 
     /**
-     * Retrieves the signing address, coinbase address, and last block where signing address was updated from storage
+     * Retrieves the signing address and last block where signing address was updated from storage
      *
      * @param identityAddress staker identity address
      * @return if identityAddress address is present in storage, address info, null otherwise
@@ -90,29 +90,6 @@ public class StakerRegistryStorage {
         return value == null ? null : StakerStorageObjects.AddressInfo.from(value);
     }
 
-    /**
-     * Puts the total stake into storage
-     *
-     * @param identityAddress staker identity address
-     * @param stake       total stake of the staker, non-null
-     */
-    protected static void putStake(Address identityAddress, BigInteger stake) {
-        byte[] key = getKey(StorageSlots.STAKE_INFO, identityAddress.toByteArray());
-        Blockchain.putStorage(key, stake.toByteArray());
-    }
-
-    /**
-     * Retrieves the total stake of the staker from storage. If the staker has registered, this value will not be null.
-     *
-     * @param identityAddress identity address of the staker
-     * @return if identityAddress address is present in storage, total stake, null otherwise
-     */
-    protected static BigInteger getStake(Address identityAddress) {
-        byte[] key = getKey(StorageSlots.STAKE_INFO, identityAddress.toByteArray());
-        byte[] value = Blockchain.getStorage(key);
-        return value == null ? null : new BigInteger(value);
-    }
-
     /**
      * Puts new pending unbond info into storage
      *
@@ -162,27 +139,57 @@ public class StakerRegistryStorage {
     }
 
     /**
-     * Puts staker state into storage
+     * Puts the bounds of the recipient's pending unbond queue into storage
      *
-     * @param identityAddress identity address of the staker
-     * @param state           staker state
+     * @param recipient unbond recipient
+     * @param queue     queue bounds. null will remove the queue from storage.
      */
-    protected static void putState(Address identityAddress, boolean state) {
-        byte[] key = getKey(StorageSlots.STATE, identityAddress.toByteArray());
-        byte[] value = new byte[]{(byte) (state ? 1 : 0)};
+    protected static void putUnbondQueue(Address recipient, StakerStorageObjects.UnbondQueue queue) {
+        byte[] key = getKey(StorageSlots.UNBOND_QUEUE, recipient.toByteArray());
+        byte[] value = (queue == null) ? null : queue.serialize();
         Blockchain.putStorage(key, value);
     }
 
     /**
-     * Gets a staker state from storage
+     * Retrieves the bounds of the recipient's pending unbond queue from storage
      *
-     * @param identityAddress identity address of the staker
-     * @return state true means an active state and false is broken state
+     * @param recipient unbond recipient
+     * @return UnbondQueue if the recipient has enabled its queue, null otherwise
      */
-    protected static boolean getState(Address identityAddress){
-        byte[] key = getKey(StorageSlots.STATE, identityAddress.toByteArray());
+    protected static StakerStorageObjects.UnbondQueue getUnbondQueue(Address recipient) {
+        byte[] key = getKey(StorageSlots.UNBOND_QUEUE, recipient.toByteArray());
         byte[] value = Blockchain.getStorage(key);
-        return value[0] != 0;
+        return value == null ? null : StakerStorageObjects.UnbondQueue.from(value);
+    }
+
+    /**
+     * Puts the unbond id at a position of the recipient's pending unbond queue into storage
+     *
+     * @param recipient unbond recipient
+     * @param position  position in the queue
+     * @param unbondId  unbond identifier. null will remove the entry from storage.
+     */
+    protected static void putUnbondQueueEntry(Address recipient, int position, Long unbondId) {
+        byte[] value = (unbondId == null) ? null : BigInteger.valueOf(unbondId).toByteArray();
+        Blockchain.putStorage(getUnbondQueueEntryKey(recipient, position), value);
+    }
+
+    /**
+     * Retrieves the unbond id at a position of the recipient's pending unbond queue from storage
+     *
+     * @param recipient unbond recipient
+     * @param position  position in the queue
+     * @return the unbond identifier, not null for the positions within the queue bounds
+     */
+    protected static long getUnbondQueueEntry(Address recipient, int position) {
+        return new BigInteger(Blockchain.getStorage(getUnbondQueueEntryKey(recipient, position))).longValue();
+    }
+
+    private static byte[] getUnbondQueueEntryKey(Address recipient, int position) {
+        AionBuffer buffer = AionBuffer.allocate(Address.LENGTH + Integer.BYTES);
+        buffer.putAddress(recipient);
+        buffer.putInt(position);
+        return getKey(StorageSlots.UNBOND_QUEUE_ENTRY, buffer.getArray());
     }
 
     private static byte[] getKey(Enum storageSlot, byte[] key) {
@@ -7,29 +7,59 @@ import java.math.BigInteger;
 
 public class StakerStorageObjects {
 
+    /**
+     * Everything block validation needs to know about a staker, stored under the signing address
+     * so that the effective stake can be computed with a single storage read.
+     */
+    static class StakerRecord {
+        Address identityAddress;
+        Address coinbaseAddress;
+        BigInteger stake;
+        boolean state;
+
+        protected StakerRecord(Address identityAddress, Address coinbaseAddress, BigInteger stake, boolean state) {
+            this.identityAddress = identityAddress;
+            this.coinbaseAddress = coinbaseAddress;
+            this.stake = stake;
+            this.state = state;
+        }
+
+        protected byte[] serialize() {
+            int length = Address.LENGTH * 2 + 32 + 1;
+            AionBuffer aionBuffer = AionBuffer.allocate(length);
+            aionBuffer.putAddress(identityAddress);
+            aionBuffer.putAddress(coinbaseAddress);
+            aionBuffer.put32ByteInt(stake);
+            aionBuffer.putBoolean(state);
+            return aionBuffer.getArray();
+        }
+
+        protected static StakerRecord from(byte[] serializedBytes) {
+            AionBuffer buffer = AionBuffer.wrap(serializedBytes);
+            return new StakerRecord(buffer.getAddress(), buffer.getAddress(), buffer.get32ByteInt(), buffer.getBoolean());
+        }
+    }
+
     static class AddressInfo {
         Address signingAddress;
-        Address coinbaseAddress;
         long lastSigningAddressUpdate;
 
-        protected AddressInfo(Address signingAddress, Address coinbaseAddress, long lastSigningAddressUpdate) {
+        protected AddressInfo(Address signingAddress, long lastSigningAddressUpdate) {
             this.signingAddress = signingAddress;
-            this.coinbaseAddress = coinbaseAddress;
             this.lastSigningAddressUpdate = lastSigningAddressUpdate;
         }
 
         protected byte[] serialize() {
-            int length = Address.LENGTH * 2 + Long.BYTES;
+            int length = Address.LENGTH + Long.BYTES;
             AionBuffer aionBuffer = AionBuffer.allocate(length);
             aionBuffer.putAddress(signingAddress);
-            aionBuffer.putAddress(coinbaseAddress);
             aionBuffer.putLong(lastSigningAddressUpdate);
             return aionBuffer.getArray();
         }
 
         protected static AddressInfo from(byte[] serializedBytes) {
             AionBuffer buffer = AionBuffer.wrap(serializedBytes);
-            return new AddressInfo(buffer.getAddress(), buffer.getAddress(), buffer.getLong());
+            return new AddressInfo(buffer.getAddress(), buffer.getLong());
         }
     }
 
@@ -93,4 +123,31 @@ public class StakerStorageObjects {
             return new PendingTransfer(buffer.getAddress(), buffer.getAddress(), buffer.get32ByteInt(), buffer.get32ByteInt(), buffer.getLong());
         }
     }
+
+    /**
+     * Bounds of a recipient's pending unbond queue. Positions in [head, tail) hold unbond ids in the order they were created,
+     * which is also the order of their block numbers.
+     */
+    static class UnbondQueue {
+        int head;
+        int tail;
+
+        protected UnbondQueue(int head, int tail) {
+            this.head = head;
+            this.tail = tail;
+        }
+
+        protected byte[] serialize() {
+            int length = Integer.BYTES * 2;
+            AionBuffer aionBuffer = AionBuffer.allocate(length);
+            aionBuffer.putInt(head);
+            aionBuffer.putInt(tail);
+            return aionBuffer.getArray();
+        }
+
+        protected static UnbondQueue from(byte[] serializedBytes) {
+            AionBuffer buffer = AionBuffer.wrap(serializedBytes);
+            return new UnbondQueue(buffer.getInt(), buffer.getInt());
+        }
+    }
 }
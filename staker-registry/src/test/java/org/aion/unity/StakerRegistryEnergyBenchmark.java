@@ -0,0 +1,367 @@
+package org.aion.unity;
+
+import avm.Address;
+import org.aion.avm.embed.AvmRule;
+import org.aion.avm.tooling.ABIUtil;
+import org.aion.avm.userlib.abi.ABIStreamingEncoder;
+import org.aion.kernel.TestingState;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+
+/**
+ * Measures the energy used by the StakerRegistry callables under controlled state:
+ * - stakers: the number of stakers registered before the call (1 or STAKER_COUNT);
+ * - storage: cold (the record written by the call does not exist yet) or warm (it has been written before).
+ * <p>
+ * The results are written to target/energy-report/StakerRegistry.json.
+ * This class is not part of the default test run, use: mvn test -Dtest=StakerRegistryEnergyBenchmark
+ */
+public class StakerRegistryEnergyBenchmark {
+
+    private static BigInteger ENOUGH_BALANCE_TO_TRANSACT = BigInteger.TEN.pow(18 + 5);
+    private static final BigInteger MIN_SELF_STAKE = new BigInteger("1000000000000000000000");
+    private static final long SIGNING_ADDRESS_COOLING_PERIOD = 6 * 60 * 24 * 7;
+    private static final long UNBOND_LOCK_UP_PERIOD = 6 * 60 * 24;
+    private static final long TRANSFER_LOCK_UP_PERIOD = 6 * 10;
+    private static final BigInteger AMOUNT = BigInteger.TEN.pow(18);
+    private static final int STAKER_COUNT = 20;
+    private static final long ENERGY_LIMIT = 5_000_000L;
+
+    private static EnergyReport report = new EnergyReport("StakerRegistry");
+
+    @Rule
+    public AvmRule RULE = new AvmRule(false);
+
+    private Address preminedAddress;
+
+    private Class[] otherClasses = {StakerRegistryEvents.class, StakerStorageObjects.class, StakerRegistryStorage.class};
+    private Address stakerRegistry;
+
+    @Before
+    public void setup() {
+        preminedAddress = RULE.getPreminedAccount();
+
+        byte[] arguments = ABIUtil.encodeDeploymentArguments(MIN_SELF_STAKE, SIGNING_ADDRESS_COOLING_PERIOD, UNBOND_LOCK_UP_PERIOD, TRANSFER_LOCK_UP_PERIOD);
+        byte[] jar = RULE.getDappBytes(StakerRegistry.class, arguments, 1, otherClasses);
+        AvmRule.ResultWrapper result = RULE.deploy(preminedAddress, BigInteger.ZERO, jar);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        stakerRegistry = result.getDappAddress();
+    }
+
+    @AfterClass
+    public static void writeReport() {
+        report.write();
+    }
+
+    @Test
+    public void benchmarkRegisterStaker() {
+        for (int stakers : new int[]{1, STAKER_COUNT}) {
+            registerStakers(stakers);
+            Staker staker = newStaker();
+            report.record("registerStaker", "stakers=" + stakers, RULE.call(staker.identity, stakerRegistry, MIN_SELF_STAKE, registerStakerData(staker), ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkGetEffectiveStake() {
+        for (int stakers : new int[]{1, STAKER_COUNT}) {
+            Staker[] registered = registerStakers(stakers);
+            Staker staker = registered[0];
+            String scenario = "stakers=" + stakers;
+
+            report.record("getEffectiveStake", scenario + ",signer=staker",
+                    RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, getEffectiveStakeData(staker.signing, staker.coinbase), ENERGY_LIMIT, 1L));
+            report.record("getEffectiveStake", scenario + ",signer=staker,coinbase=mismatch",
+                    RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, getEffectiveStakeData(staker.signing, staker.identity), ENERGY_LIMIT, 1L));
+            report.record("getEffectiveStake", scenario + ",signer=unknown",
+                    RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, getEffectiveStakeData(staker.identity, staker.coinbase), ENERGY_LIMIT, 1L));
+
+            call(staker.identity, BigInteger.ZERO, new ABIStreamingEncoder()
+                    .encodeOneString("setState")
+                    .encodeOneAddress(staker.identity)
+                    .encodeOneBoolean(false)
+                    .toBytes());
+            report.record("getEffectiveStake", scenario + ",signer=staker,state=broken",
+                    RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, getEffectiveStakeData(staker.signing, staker.coinbase), ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkGetEffectiveStakes() {
+        Staker[] registered = registerStakers(STAKER_COUNT);
+        for (int blocks : new int[]{1, 10, 100}) {
+            // blocks are signed by the registered stakers in a round-robin fashion
+            Address[] signingAddresses = new Address[blocks];
+            Address[] coinbaseAddresses = new Address[blocks];
+            for (int i = 0; i < blocks; i++) {
+                signingAddresses[i] = registered[i % STAKER_COUNT].signing;
+                coinbaseAddresses[i] = registered[i % STAKER_COUNT].coinbase;
+            }
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("getEffectiveStakes")
+                    .encodeOneAddressArray(signingAddresses)
+                    .encodeOneAddressArray(coinbaseAddresses)
+                    .toBytes();
+            report.record("getEffectiveStakes", "stakers=" + STAKER_COUNT + ",blocks=" + blocks,
+                    RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkBondAndUnbond() {
+        for (int stakers : new int[]{1, STAKER_COUNT}) {
+            Staker staker = registerStakers(stakers)[0];
+            String scenario = "stakers=" + stakers;
+
+            report.record("bond", scenario, RULE.call(staker.identity, stakerRegistry, AMOUNT, bondData(staker), ENERGY_LIMIT, 1L));
+
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("unbond")
+                    .encodeOneAddress(staker.identity)
+                    .encodeOneBigInteger(AMOUNT)
+                    .encodeOneBigInteger(BigInteger.TEN)
+                    .toBytes();
+            AvmRule.ResultWrapper result = RULE.call(staker.identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L);
+            report.record("unbond", scenario, result);
+            long id = (long) result.getDecodedReturnData();
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("unbondTo")
+                    .encodeOneAddress(staker.identity)
+                    .encodeOneBigInteger(AMOUNT)
+                    .encodeOneAddress(preminedAddress)
+                    .encodeOneBigInteger(BigInteger.TEN)
+                    .toBytes();
+            call(staker.identity, AMOUNT, bondData(staker));
+            report.record("unbondTo", scenario, RULE.call(staker.identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            tweakBlockNumber(RULE.kernel.getBlockNumber() + UNBOND_LOCK_UP_PERIOD);
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("finalizeUnbond")
+                    .encodeOneLong(id)
+                    .toBytes();
+            report.record("finalizeUnbond", scenario, RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkFinalizeBatches() {
+        Staker[] registered = registerStakers(2);
+        for (int count : new int[]{1, 10}) {
+            String scenario = "ids=" + count;
+            call(registered[0].identity, AMOUNT.multiply(BigInteger.valueOf(2 * count)), bondData(registered[0]));
+
+            long[] unbondIds = new long[count];
+            long[] transferIds = new long[count];
+            for (int i = 0; i < count; i++) {
+                byte[] txData = new ABIStreamingEncoder()
+                        .encodeOneString("unbond")
+                        .encodeOneAddress(registered[0].identity)
+                        .encodeOneBigInteger(AMOUNT)
+                        .encodeOneBigInteger(BigInteger.TEN)
+                        .toBytes();
+                unbondIds[i] = (long) RULE.call(registered[0].identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L).getDecodedReturnData();
+
+                txData = new ABIStreamingEncoder()
+                        .encodeOneString("transferStake")
+                        .encodeOneAddress(registered[0].identity)
+                        .encodeOneAddress(registered[1].identity)
+                        .encodeOneBigInteger(AMOUNT)
+                        .encodeOneBigInteger(BigInteger.TEN)
+                        .toBytes();
+                transferIds[i] = (long) RULE.call(registered[0].identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L).getDecodedReturnData();
+            }
+
+            tweakBlockNumber(RULE.kernel.getBlockNumber() + UNBOND_LOCK_UP_PERIOD);
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("finalizeUnbonds")
+                    .encodeOneLongArray(unbondIds)
+                    .toBytes();
+            report.record("finalizeUnbonds", scenario, RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("finalizeTransfers")
+                    .encodeOneLongArray(transferIds)
+                    .toBytes();
+            report.record("finalizeTransfers", scenario, RULE.call(registered[0].identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkFinalizeAllMatured() {
+        Staker staker = registerStakers(1)[0];
+        call(staker.identity, BigInteger.ZERO, new ABIStreamingEncoder()
+                .encodeOneString("setUnbondQueueEnabled")
+                .encodeOneBoolean(true)
+                .toBytes());
+        for (int count : new int[]{1, 10}) {
+            call(staker.identity, AMOUNT.multiply(BigInteger.valueOf(count)), bondData(staker));
+            for (int i = 0; i < count; i++) {
+                byte[] txData = new ABIStreamingEncoder()
+                        .encodeOneString("unbond")
+                        .encodeOneAddress(staker.identity)
+                        .encodeOneBigInteger(AMOUNT)
+                        .encodeOneBigInteger(BigInteger.TEN)
+                        .toBytes();
+                AvmRule.ResultWrapper result = RULE.call(staker.identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L);
+                Assert.assertTrue(result.getReceiptStatus().isSuccess());
+                if (count == 1) {
+                    report.record("unbond", "queue=enabled", result);
+                }
+            }
+
+            tweakBlockNumber(RULE.kernel.getBlockNumber() + UNBOND_LOCK_UP_PERIOD);
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("finalizeAllMatured")
+                    .encodeOneAddress(staker.identity)
+                    .encodeOneInteger(count)
+                    .toBytes();
+            report.record("finalizeAllMatured", "unbonds=" + count, RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkTransferStake() {
+        for (int stakers : new int[]{2, STAKER_COUNT}) {
+            Staker[] registered = registerStakers(stakers);
+            String scenario = "stakers=" + stakers;
+
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("transferStake")
+                    .encodeOneAddress(registered[0].identity)
+                    .encodeOneAddress(registered[1].identity)
+                    .encodeOneBigInteger(AMOUNT)
+                    .encodeOneBigInteger(BigInteger.TEN)
+                    .toBytes();
+            AvmRule.ResultWrapper result = RULE.call(registered[0].identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L);
+            report.record("transferStake", scenario, result);
+            long id = (long) result.getDecodedReturnData();
+
+            tweakBlockNumber(RULE.kernel.getBlockNumber() + TRANSFER_LOCK_UP_PERIOD);
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("finalizeTransfer")
+                    .encodeOneLong(id)
+                    .toBytes();
+            report.record("finalizeTransfer", scenario, RULE.call(registered[0].identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkStakerSettings() {
+        for (int stakers : new int[]{1, STAKER_COUNT}) {
+            Staker staker = registerStakers(stakers)[0];
+            String scenario = "stakers=" + stakers;
+
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("setState")
+                    .encodeOneAddress(staker.identity)
+                    .encodeOneBoolean(false)
+                    .toBytes();
+            report.record("setState", scenario + ",state=changed", RULE.call(staker.identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+            report.record("setState", scenario + ",state=unchanged", RULE.call(staker.identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            tweakBlockNumber(RULE.kernel.getBlockNumber() + SIGNING_ADDRESS_COOLING_PERIOD);
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("setSigningAddress")
+                    .encodeOneAddress(staker.identity)
+                    .encodeOneAddress(RULE.getRandomAddress(BigInteger.ZERO))
+                    .toBytes();
+            report.record("setSigningAddress", scenario, RULE.call(staker.identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("setCoinbaseAddress")
+                    .encodeOneAddress(staker.identity)
+                    .encodeOneAddress(RULE.getRandomAddress(BigInteger.ZERO))
+                    .toBytes();
+            report.record("setCoinbaseAddress", scenario, RULE.call(staker.identity, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+        }
+    }
+
+    @Test
+    public void benchmarkQueries() {
+        for (int stakers : new int[]{1, STAKER_COUNT}) {
+            Staker staker = registerStakers(stakers)[0];
+            String scenario = "stakers=" + stakers;
+            for (String method : new String[]{"getTotalStake", "isStaker", "isActive", "getSigningAddress", "getCoinbaseAddress"}) {
+                byte[] txData = new ABIStreamingEncoder()
+                        .encodeOneString(method)
+                        .encodeOneAddress(staker.identity)
+                        .toBytes();
+                report.record(method, scenario, RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData, ENERGY_LIMIT, 1L));
+            }
+        }
+    }
+
+    private Staker[] registerStakers(int count) {
+        Staker[] stakers = new Staker[count];
+        for (int i = 0; i < count; i++) {
+            stakers[i] = newStaker();
+            call(stakers[i].identity, MIN_SELF_STAKE, registerStakerData(stakers[i]));
+        }
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + 1);
+        return stakers;
+    }
+
+    private Staker newStaker() {
+        return new Staker(RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT), RULE.getRandomAddress(BigInteger.ZERO), RULE.getRandomAddress(BigInteger.ZERO));
+    }
+
+    private void call(Address sender, BigInteger value, byte[] txData) {
+        AvmRule.ResultWrapper result = RULE.call(sender, stakerRegistry, value, txData, ENERGY_LIMIT, 1L);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+    }
+
+    private byte[] registerStakerData(Staker staker) {
+        return new ABIStreamingEncoder()
+                .encodeOneString("registerStaker")
+                .encodeOneAddress(staker.identity)
+                .encodeOneAddress(staker.signing)
+                .encodeOneAddress(staker.coinbase)
+                .toBytes();
+    }
+
+    private byte[] bondData(Staker staker) {
+        return new ABIStreamingEncoder()
+                .encodeOneString("bond")
+                .encodeOneAddress(staker.identity)
+                .toBytes();
+    }
+
+    private byte[] getEffectiveStakeData(Address signingAddress, Address coinbaseAddress) {
+        return new ABIStreamingEncoder()
+                .encodeOneString("getEffectiveStake")
+                .encodeOneAddress(signingAddress)
+                .encodeOneAddress(coinbaseAddress)
+                .toBytes();
+    }
+
+    private void tweakBlockNumber(long number) {
+        try {
+            Field f = TestingState.class.getDeclaredField("blockNumber");
+            f.setAccessible(true);
+
+            f.set(RULE.kernel, number);
+
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class Staker {
+        private final Address identity;
+        private final Address signing;
+        private final Address coinbase;
+
+        private Staker(Address identity, Address signing, Address coinbase) {
+            this.identity = identity;
+            this.signing = signing;
+            this.coinbase = coinbase;
+        }
+    }
+}
@@ -593,6 +593,125 @@ public class StakerRegistryTest {
         Assert.assertTrue(result.getReceiptStatus().isSuccess());
     }
 
+    @Test
+    public void testGetEffectiveStakeAfterStakerUpdates() {
+        Address anotherSigningAddress = RULE.getRandomAddress(BigInteger.ZERO);
+        Address anotherCoinbaseAddress = RULE.getRandomAddress(BigInteger.ZERO);
+
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + SIGNING_ADDRESS_COOLING_PERIOD);
+
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("setSigningAddress")
+                .encodeOneAddress(stakerAddress)
+                .encodeOneAddress(anotherSigningAddress)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+        // the old signing address is no longer associated with the staker
+        Assert.assertEquals(BigInteger.ZERO, getEffectiveStake(signingAddress, coinbaseAddress));
+        Assert.assertEquals(MIN_SELF_STAKE, getEffectiveStake(anotherSigningAddress, coinbaseAddress));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("setCoinbaseAddress")
+                .encodeOneAddress(stakerAddress)
+                .encodeOneAddress(anotherCoinbaseAddress)
+                .toBytes();
+        result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+        Assert.assertEquals(BigInteger.ZERO, getEffectiveStake(anotherSigningAddress, coinbaseAddress));
+        Assert.assertEquals(MIN_SELF_STAKE, getEffectiveStake(anotherSigningAddress, anotherCoinbaseAddress));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("bond")
+                .encodeOneAddress(stakerAddress)
+                .toBytes();
+        result = RULE.call(stakerAddress, stakerRegistry, MIN_SELF_STAKE, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(MIN_SELF_STAKE.multiply(BigInteger.TWO), getEffectiveStake(anotherSigningAddress, anotherCoinbaseAddress));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("setState")
+                .encodeOneAddress(stakerAddress)
+                .encodeOneBoolean(false)
+                .toBytes();
+        result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(BigInteger.ZERO, getEffectiveStake(anotherSigningAddress, anotherCoinbaseAddress));
+
+        // the stake and state are still available through the identity address
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getTotalStake")
+                .encodeOneAddress(stakerAddress)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertEquals(MIN_SELF_STAKE.multiply(BigInteger.TWO), result.getDecodedReturnData());
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("isActive")
+                .encodeOneAddress(stakerAddress)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertEquals(false, result.getDecodedReturnData());
+    }
+
+    @Test
+    public void testGetEffectiveStakes() {
+        Address stakerAddress2 = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        Address signingAddress2 = RULE.getRandomAddress(BigInteger.ZERO);
+
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("registerStaker")
+                .encodeOneAddress(stakerAddress2)
+                .encodeOneAddress(signingAddress2)
+                .encodeOneAddress(stakerAddress2)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(stakerAddress2, stakerRegistry, MIN_SELF_STAKE.multiply(BigInteger.TWO), txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+        Address[] signingAddresses = {signingAddress, signingAddress2, signingAddress, preminedAddress, signingAddress2};
+        Address[] coinbaseAddresses = {coinbaseAddress, stakerAddress2, preminedAddress, coinbaseAddress, stakerAddress2};
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getEffectiveStakes")
+                .encodeOneAddressArray(signingAddresses)
+                .encodeOneAddressArray(coinbaseAddresses)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+        BigInteger[] effectiveStakes = (BigInteger[]) result.getDecodedReturnData();
+        Assert.assertEquals(signingAddresses.length, effectiveStakes.length);
+        for (int i = 0; i < signingAddresses.length; i++) {
+            Assert.assertEquals(getEffectiveStake(signingAddresses[i], coinbaseAddresses[i]), effectiveStakes[i]);
+        }
+        Assert.assertEquals(MIN_SELF_STAKE, effectiveStakes[0]);
+        Assert.assertEquals(MIN_SELF_STAKE.multiply(BigInteger.TWO), effectiveStakes[1]);
+        Assert.assertEquals(BigInteger.ZERO, effectiveStakes[2]);
+        Assert.assertEquals(BigInteger.ZERO, effectiveStakes[3]);
+
+        // the arrays should have the same length
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getEffectiveStakes")
+                .encodeOneAddressArray(signingAddresses)
+                .encodeOneAddressArray(new Address[]{coinbaseAddress})
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isFailed());
+    }
+
+    private BigInteger getEffectiveStake(Address signingAddress, Address coinbaseAddress) {
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("getEffectiveStake")
+                .encodeOneAddress(signingAddress)
+                .encodeOneAddress(coinbaseAddress)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        return (BigInteger) result.getDecodedReturnData();
+    }
+
     @Test
     public void testUpdateSigningAddress() {
         Address anotherSigningAddress = RULE.getRandomAddress(BigInteger.ZERO);
@@ -859,11 +978,468 @@ public class StakerRegistryTest {
                 RULE.kernel.getBalance(new AionAddress(stakerAddress.toByteArray())));
     }
 
+    @Test
+    public void testFinalizeUnbonds() {
+        BigInteger unbondAmount = BigInteger.valueOf(100).multiply(BigInteger.TEN.pow(18));
+        BigInteger unbondFee = BigInteger.valueOf(2).multiply(BigInteger.TEN.pow(18));
+        Address recipient = RULE.getRandomAddress(BigInteger.ZERO);
+
+        long[] ids = new long[3];
+        for (int i = 0; i < 2; i++) {
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("unbondTo")
+                    .encodeOneAddress(stakerAddress)
+                    .encodeOneBigInteger(unbondAmount)
+                    .encodeOneAddress(recipient)
+                    .encodeOneBigInteger(unbondFee)
+                    .toBytes();
+            AvmRule.ResultWrapper result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+            Assert.assertTrue(result.getReceiptStatus().isSuccess());
+            ids[i] = (long) result.getDecodedReturnData();
+        }
+
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + unbond_LOCK_UP_PERIOD);
+
+        // the last unbond is still in the lock-up period
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("unbondTo")
+                .encodeOneAddress(stakerAddress)
+                .encodeOneBigInteger(unbondAmount)
+                .encodeOneAddress(recipient)
+                .encodeOneBigInteger(unbondFee)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        ids[2] = (long) result.getDecodedReturnData();
+
+        BigInteger preminedBalance = RULE.kernel.getBalance(new AionAddress(preminedAddress.toByteArray()));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeUnbonds")
+                .encodeOneLongArray(ids)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+        // only the two matured unbonds are finalized
+        Assert.assertEquals(2, result.getLogs().size());
+        Assert.assertEquals(preminedBalance.add(unbondFee.multiply(BigInteger.TWO)).subtract(BigInteger.valueOf(result.getTransactionResult().energyUsed)),
+                RULE.kernel.getBalance(new AionAddress(preminedAddress.toByteArray())));
+        Assert.assertEquals(unbondAmount.subtract(unbondFee).multiply(BigInteger.TWO),
+                RULE.kernel.getBalance(new AionAddress(recipient.toByteArray())));
+
+        // finalized unbonds are skipped, the matured one is finalized
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + unbond_LOCK_UP_PERIOD);
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(1, result.getLogs().size());
+        Assert.assertEquals(unbondAmount.subtract(unbondFee).multiply(BigInteger.valueOf(3)),
+                RULE.kernel.getBalance(new AionAddress(recipient.toByteArray())));
+    }
+
+    @Test
+    public void testFinalizeTransfers() {
+        BigInteger transferAmount = BigInteger.valueOf(100).multiply(BigInteger.TEN.pow(18));
+        BigInteger transferFee = BigInteger.valueOf(2).multiply(BigInteger.TEN.pow(18));
+        Address stakerAddress2 = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("registerStaker")
+                .encodeOneAddress(stakerAddress2)
+                .encodeOneAddress(stakerAddress2)
+                .encodeOneAddress(stakerAddress2)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(stakerAddress2, stakerRegistry, MIN_SELF_STAKE, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("transferStake")
+                .encodeOneAddress(stakerAddress)
+                .encodeOneAddress(stakerAddress2)
+                .encodeOneBigInteger(transferAmount)
+                .encodeOneBigInteger(transferFee)
+                .toBytes();
+        result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        long maturedId = (long) result.getDecodedReturnData();
+
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + TRANSFER_LOCK_UP_PERIOD);
+
+        result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        long immatureId = (long) result.getDecodedReturnData();
+
+        // only the initiator can finalize the transfers
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeTransfers")
+                .encodeOneLongArray(new long[]{maturedId, immatureId, Long.MAX_VALUE})
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isFailed());
+
+        BigInteger stakerBalance = RULE.kernel.getBalance(new AionAddress(stakerAddress.toByteArray()));
+        result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertArrayEquals(new BigInteger[]{transferFee, null, null}, (BigInteger[]) result.getDecodedReturnData());
+        Assert.assertEquals(stakerBalance.add(transferFee).subtract(BigInteger.valueOf(result.getTransactionResult().energyUsed)),
+                RULE.kernel.getBalance(new AionAddress(stakerAddress.toByteArray())));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getTotalStake")
+                .encodeOneAddress(stakerAddress2)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertEquals(MIN_SELF_STAKE.add(transferAmount.subtract(transferFee)), result.getDecodedReturnData());
+    }
+
+    @Test
+    public void testFinalizeToBeneficiary() {
+        BigInteger amount = BigInteger.valueOf(100).multiply(BigInteger.TEN.pow(18));
+        BigInteger fee = BigInteger.valueOf(2).multiply(BigInteger.TEN.pow(18));
+        Address recipient = RULE.getRandomAddress(BigInteger.ZERO);
+        Address beneficiary = RULE.getRandomAddress(BigInteger.ZERO);
+        Address stakerAddress2 = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("registerStaker")
+                .encodeOneAddress(stakerAddress2)
+                .encodeOneAddress(stakerAddress2)
+                .encodeOneAddress(stakerAddress2)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(stakerAddress2, stakerRegistry, MIN_SELF_STAKE, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+        long[] unbondIds = new long[2];
+        for (int i = 0; i < unbondIds.length; i++) {
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("unbondTo")
+                    .encodeOneAddress(stakerAddress)
+                    .encodeOneBigInteger(amount)
+                    .encodeOneAddress(recipient)
+                    .encodeOneBigInteger(fee)
+                    .toBytes();
+            result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+            Assert.assertTrue(result.getReceiptStatus().isSuccess());
+            unbondIds[i] = (long) result.getDecodedReturnData();
+        }
+
+        long[] transferIds = new long[2];
+        for (int i = 0; i < transferIds.length; i++) {
+            txData = new ABIStreamingEncoder()
+                    .encodeOneString("transferStake")
+                    .encodeOneAddress(stakerAddress)
+                    .encodeOneAddress(stakerAddress2)
+                    .encodeOneBigInteger(amount)
+                    .encodeOneBigInteger(fee)
+                    .toBytes();
+            result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+            Assert.assertTrue(result.getReceiptStatus().isSuccess());
+            transferIds[i] = (long) result.getDecodedReturnData();
+        }
+
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + unbond_LOCK_UP_PERIOD);
+
+        // unbond finalization is permissionless, the fee goes to the beneficiary rather than the caller
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeUnbondTo")
+                .encodeOneLong(unbondIds[0])
+                .encodeOneAddress(beneficiary)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(fee, RULE.kernel.getBalance(new AionAddress(beneficiary.toByteArray())));
+        Assert.assertEquals(amount.subtract(fee), RULE.kernel.getBalance(new AionAddress(recipient.toByteArray())));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeUnbondsTo")
+                .encodeOneLongArray(new long[]{unbondIds[0], unbondIds[1]})
+                .encodeOneAddress(beneficiary)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(fee.multiply(BigInteger.TWO), RULE.kernel.getBalance(new AionAddress(beneficiary.toByteArray())));
+
+        // transfer finalization is still restricted to the initiator
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeTransferTo")
+                .encodeOneLong(transferIds[0])
+                .encodeOneAddress(beneficiary)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isFailed());
+
+        result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(fee, result.getDecodedReturnData());
+        Assert.assertEquals(fee.multiply(BigInteger.valueOf(3)), RULE.kernel.getBalance(new AionAddress(beneficiary.toByteArray())));
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeTransfersTo")
+                .encodeOneLongArray(transferIds)
+                .encodeOneAddress(beneficiary)
+                .toBytes();
+        result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertArrayEquals(new BigInteger[]{null, fee}, (BigInteger[]) result.getDecodedReturnData());
+        Assert.assertEquals(fee.multiply(BigInteger.valueOf(4)), RULE.kernel.getBalance(new AionAddress(beneficiary.toByteArray())));
+    }
+
+    @Test
+    public void testFinalizeAllMatured() {
+        BigInteger unbondAmount = BigInteger.valueOf(100).multiply(BigInteger.TEN.pow(18));
+        BigInteger unbondFee = BigInteger.valueOf(2).multiply(BigInteger.TEN.pow(18));
+        Address recipient = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        setUnbondQueueEnabled(recipient, true);
+        BigInteger recipientBalance = RULE.kernel.getBalance(new AionAddress(recipient.toByteArray()));
+
+        long[] ids = new long[4];
+        for (int i = 0; i < ids.length; i++) {
+            // the last unbond is created after the lock-up period of the others has passed
+            if (i == ids.length - 1) {
+                tweakBlockNumber(RULE.kernel.getBlockNumber() + unbond_LOCK_UP_PERIOD);
+            }
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("unbondTo")
+                    .encodeOneAddress(stakerAddress)
+                    .encodeOneBigInteger(unbondAmount)
+                    .encodeOneAddress(recipient)
+                    .encodeOneBigInteger(unbondFee)
+                    .toBytes();
+            AvmRule.ResultWrapper result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+            Assert.assertTrue(result.getReceiptStatus().isSuccess());
+            ids[i] = (long) result.getDecodedReturnData();
+        }
+
+        // the second unbond is finalized by id, its queue entry is discarded later
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeUnbond")
+                .encodeOneLong(ids[1])
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+        // the work is bounded by maxCount
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeAllMatured")
+                .encodeOneAddress(recipient)
+                .encodeOneInteger(2)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(1, result.getDecodedReturnData());
+        Assert.assertEquals(recipientBalance.add(unbondAmount.subtract(unbondFee).multiply(BigInteger.TWO)),
+                RULE.kernel.getBalance(new AionAddress(recipient.toByteArray())));
+
+        // stops at the unbond which is still in the lock-up period
+        BigInteger preminedBalance = RULE.kernel.getBalance(new AionAddress(preminedAddress.toByteArray()));
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeAllMatured")
+                .encodeOneAddress(recipient)
+                .encodeOneInteger(10)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(1, result.getDecodedReturnData());
+        Assert.assertEquals(1, result.getLogs().size());
+        Assert.assertEquals(recipientBalance.add(unbondAmount.subtract(unbondFee).multiply(BigInteger.valueOf(3))),
+                RULE.kernel.getBalance(new AionAddress(recipient.toByteArray())));
+        Assert.assertEquals(preminedBalance.add(unbondFee).subtract(BigInteger.valueOf(result.getTransactionResult().energyUsed)),
+                RULE.kernel.getBalance(new AionAddress(preminedAddress.toByteArray())));
+
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(0, result.getDecodedReturnData());
+
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + unbond_LOCK_UP_PERIOD);
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(1, result.getDecodedReturnData());
+        Assert.assertEquals(recipientBalance.add(unbondAmount.subtract(unbondFee).multiply(BigInteger.valueOf(4))),
+                RULE.kernel.getBalance(new AionAddress(recipient.toByteArray())));
+
+        // the queue is empty
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(0, result.getDecodedReturnData());
+    }
+
+    @Test
+    public void testUnbondQueueEnabled() {
+        Address recipient = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        byte[] unbondData = new ABIStreamingEncoder()
+                .encodeOneString("unbondTo")
+                .encodeOneAddress(stakerAddress)
+                .encodeOneBigInteger(BigInteger.TEN)
+                .encodeOneAddress(recipient)
+                .encodeOneBigInteger(BigInteger.ZERO)
+                .toBytes();
+        byte[] finalizeData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeAllMatured")
+                .encodeOneAddress(recipient)
+                .encodeOneInteger(10)
+                .toBytes();
+
+        // the unbonds are not queued before the recipient enables its queue
+        AvmRule.ResultWrapper result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, unbondData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        long notQueued = (long) result.getDecodedReturnData();
+
+        setUnbondQueueEnabled(recipient, true);
+        // enabling twice keeps the queue
+        setUnbondQueueEnabled(recipient, true);
+        result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, unbondData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+        // a queue with pending unbonds cannot be disabled
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("setUnbondQueueEnabled")
+                .encodeOneBoolean(false)
+                .toBytes();
+        result = RULE.call(recipient, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isFailed());
+
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + unbond_LOCK_UP_PERIOD);
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, finalizeData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(1, result.getDecodedReturnData());
+
+        // the queue stays enabled once it is drained
+        result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, unbondData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + unbond_LOCK_UP_PERIOD);
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, finalizeData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(1, result.getDecodedReturnData());
+
+        // the unbond created before the queue was enabled is still finalized by id
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeUnbond")
+                .encodeOneLong(notQueued)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(1, result.getLogs().size());
+
+        setUnbondQueueEnabled(recipient, false);
+        result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, unbondData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + unbond_LOCK_UP_PERIOD);
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, finalizeData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(0, result.getDecodedReturnData());
+    }
+
+    @Test
+    public void testGetPendingUnbonds() {
+        BigInteger unbondFee = BigInteger.ONE;
+        Address recipient = RULE.getRandomAddress(ENOUGH_BALANCE_TO_TRANSACT);
+        setUnbondQueueEnabled(recipient, true);
+
+        long[] ids = new long[3];
+        for (int i = 0; i < ids.length; i++) {
+            byte[] txData = new ABIStreamingEncoder()
+                    .encodeOneString("unbondTo")
+                    .encodeOneAddress(stakerAddress)
+                    .encodeOneBigInteger(BigInteger.valueOf(100 + i))
+                    .encodeOneAddress(recipient)
+                    .encodeOneBigInteger(unbondFee)
+                    .toBytes();
+            AvmRule.ResultWrapper result = RULE.call(stakerAddress, stakerRegistry, BigInteger.ZERO, txData);
+            Assert.assertTrue(result.getReceiptStatus().isSuccess());
+            ids[i] = (long) result.getDecodedReturnData();
+        }
+
+        tweakBlockNumber(RULE.kernel.getBlockNumber() + unbond_LOCK_UP_PERIOD);
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeUnbond")
+                .encodeOneLong(ids[1])
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+        // the first page reads two entries, the finalized unbond is skipped
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getPendingUnbonds")
+                .encodeOneAddress(recipient)
+                .encodeOneInteger(0)
+                .encodeOneInteger(2)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        ABIDecoder decoder = new ABIDecoder((byte[]) result.getDecodedReturnData());
+        int cursor = decoder.decodeOneInteger();
+        Assert.assertEquals(2, cursor);
+        Assert.assertEquals(1, decoder.decodeOneInteger());
+        Assert.assertEquals(ids[0], decoder.decodeOneLong());
+        Assert.assertEquals(BigInteger.valueOf(100), decoder.decodeOneBigInteger());
+        Assert.assertEquals(unbondFee, decoder.decodeOneBigInteger());
+        Assert.assertTrue(decoder.decodeOneLong() > 0);
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getPendingUnbonds")
+                .encodeOneAddress(recipient)
+                .encodeOneInteger(cursor)
+                .encodeOneInteger(2)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        decoder = new ABIDecoder((byte[]) result.getDecodedReturnData());
+        Assert.assertEquals(3, decoder.decodeOneInteger());
+        Assert.assertEquals(1, decoder.decodeOneInteger());
+        Assert.assertEquals(ids[2], decoder.decodeOneLong());
+        Assert.assertEquals(BigInteger.valueOf(102), decoder.decodeOneBigInteger());
+
+        // cursors before the head of the queue start from the head
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("finalizeAllMatured")
+                .encodeOneAddress(recipient)
+                .encodeOneInteger(1)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getPendingUnbonds")
+                .encodeOneAddress(recipient)
+                .encodeOneInteger(0)
+                .encodeOneInteger(10)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        decoder = new ABIDecoder((byte[]) result.getDecodedReturnData());
+        Assert.assertEquals(3, decoder.decodeOneInteger());
+        Assert.assertEquals(1, decoder.decodeOneInteger());
+        Assert.assertEquals(ids[2], decoder.decodeOneLong());
+
+        // limits above the maximum page size are clamped
+        txData = new ABIStreamingEncoder()
+                .encodeOneString("getPendingUnbonds")
+                .encodeOneAddress(recipient)
+                .encodeOneInteger(0)
+                .encodeOneInteger(Integer.MAX_VALUE)
+                .toBytes();
+        result = RULE.call(preminedAddress, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        decoder = new ABIDecoder((byte[]) result.getDecodedReturnData());
+        Assert.assertEquals(3, decoder.decodeOneInteger());
+        Assert.assertEquals(1, decoder.decodeOneInteger());
+    }
+
     @Test
     public void testFallback(){
         Assert.assertTrue(RULE.balanceTransfer(preminedAddress, stakerRegistry, BigInteger.TEN, 50000L, 1L).getReceiptStatus().isFailed());
     }
 
+    private void setUnbondQueueEnabled(Address recipient, boolean enabled) {
+        byte[] txData = new ABIStreamingEncoder()
+                .encodeOneString("setUnbondQueueEnabled")
+                .encodeOneBoolean(enabled)
+                .toBytes();
+        AvmRule.ResultWrapper result = RULE.call(recipient, stakerRegistry, BigInteger.ZERO, txData);
+        Assert.assertTrue(result.getReceiptStatus().isSuccess());
+        Assert.assertEquals(1, result.getLogs().size());
+    }
+
     public void tweakBlockNumber(long number) {
         try {
             Field f = TestingState.class.getDeclaredField("blockNumber");